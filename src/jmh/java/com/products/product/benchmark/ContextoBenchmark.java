@@ -0,0 +1,46 @@
+package com.products.product.benchmark;
+
+import com.products.product.ProductApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Arranca la aplicación sin servidor web contra H2 en memoria (modo PostgreSQL), sin
+ * Eureka ni Spring Boot Admin y con el log de SQL apagado para no medir la consola.
+ */
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext arrancar(String... propiedades) {
+        String[] base = {
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--eureka.client.enabled=false",
+                "--spring.boot.admin.client.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--logging.level.com.products.product=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.com.zaxxer.hikari=WARN",
+                "--logging.level.org.postgresql=WARN"
+        };
+        String[] argumentos = new String[base.length + propiedades.length];
+        System.arraycopy(base, 0, argumentos, 0, base.length);
+        for (int i = 0; i < propiedades.length; i++) {
+            argumentos[base.length + i] = "--" + propiedades[i];
+        }
+        return new SpringApplicationBuilder(ProductApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(argumentos);
+    }
+}
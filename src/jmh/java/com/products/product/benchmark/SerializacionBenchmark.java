@@ -0,0 +1,87 @@
+package com.products.product.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.EstadoImagen;
+import com.products.product.entity.Product;
+import com.products.product.entity.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de las entidades que devuelven los controladores, con el mismo
+ * ObjectMapper por defecto que configura Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Product product;
+    private CartItem cartItem;
+    private Review review;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        product = new Product();
+        product.setId(42L);
+        product.setNombre("Teclado mecánico");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setPrecio(89.9);
+        product.setCantidad(120);
+        product.setDescripcion("Teclado mecánico con switches rojos y retroiluminación");
+        product.setImagenUrl("http://res.cloudinary.com/demo/image/upload/v1/teclado.jpg");
+        product.setEstadoImagen(EstadoImagen.SUBIDA);
+        product.setMiniatura160Url("http://res.cloudinary.com/demo/image/upload/v1/teclado-160.jpg");
+        product.setMiniatura320Url("http://res.cloudinary.com/demo/image/upload/v1/teclado-320.jpg");
+        product.setMiniatura640Url("http://res.cloudinary.com/demo/image/upload/v1/teclado-640.jpg");
+
+        cartItem = new CartItem();
+        cartItem.setId(7L);
+        cartItem.setUserId("usuario-1");
+        cartItem.setQuantity(2);
+        cartItem.setProduct(product);
+
+        review = new Review();
+        review.setId(9L);
+        review.setUserId(1L);
+        review.setProduct(product);
+        review.setRating(5);
+        review.setComment("Muy buen teclado, llegó a tiempo");
+        review.setVerifiedPurchase(true);
+    }
+
+    @Benchmark
+    public byte[] product() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] cartItem() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cartItem);
+    }
+
+    @Benchmark
+    public byte[] review() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(review);
+    }
+}
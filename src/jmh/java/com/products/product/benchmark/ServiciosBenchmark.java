@@ -0,0 +1,120 @@
+package com.products.product.benchmark;
+
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.entity.Review;
+import com.products.product.service.CartService;
+import com.products.product.service.ProductService;
+import com.products.product.service.ReviewService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rutas calientes de los servicios con el contexto Spring completo (caché, transacciones,
+ * repositorios JPA) sobre H2 en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiciosBenchmark {
+
+    private static final int PRODUCTOS = 1_000;
+    // Usuarios con entrega registrada: cada reseña necesita un usuario distinto
+    private static final int USUARIOS_CON_ENTREGA = 2_000_000;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductService productService;
+    private CartService cartService;
+    private ReviewService reviewService;
+
+    private Long productoId;
+    private Long productoResenaId;
+    private final AtomicLong carritos = new AtomicLong();
+    private final AtomicLong resenas = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        contexto = ContextoBenchmark.arrancar();
+        productService = contexto.getBean(ProductService.class);
+        cartService = contexto.getBean(CartService.class);
+        reviewService = contexto.getBean(ReviewService.class);
+
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Product product = new Product();
+            product.setNombre((i % 10 == 0 ? "Teclado mecánico " : "Producto ") + i);
+            product.setCategoria(Categoria.ELECTRONICA);
+            product.setPrecio(10.0 + i);
+            product.setCantidad(Integer.MAX_VALUE / 2);
+            product.setDescripcion("Descripción del producto " + i);
+            Product creado = productService.createProduct(product);
+            if (i == 0) {
+                productoId = creado.getId();
+            }
+            productoResenaId = creado.getId();
+        }
+
+        // La tabla de entregas pertenece a otro servicio; aquí se simula con el mínimo necesario
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        jdbc.execute("CREATE TABLE deliveries (user_id BIGINT, product_id BIGINT, estado VARCHAR(20))");
+        jdbc.update("INSERT INTO deliveries (user_id, product_id, estado) " +
+                "SELECT X, ?, 'ENTREGADA' FROM SYSTEM_RANGE(1, ?)", productoResenaId, USUARIOS_CON_ENTREGA);
+        jdbc.execute("CREATE INDEX idx_deliveries_usuario ON deliveries (user_id, product_id, estado)");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return productService.getProductById(productoId);
+    }
+
+    @Benchmark
+    public List<Product> findByNombre() {
+        return productService.findByNombre("teclado");
+    }
+
+    @Benchmark
+    public CartItem addToCart() {
+        // Un carrito por cada 100 operaciones: se mezclan inserciones y acumulaciones
+        return cartService.addToCart("usuario-" + carritos.incrementAndGet() / 100, productoId, 1);
+    }
+
+    @Benchmark
+    public Review createReview() {
+        long usuario = resenas.incrementAndGet();
+        if (usuario > USUARIOS_CON_ENTREGA) {
+            throw new IllegalStateException("Sin usuarios con entrega: aumentar USUARIOS_CON_ENTREGA");
+        }
+        Product product = new Product();
+        product.setId(productoResenaId);
+        Review review = new Review();
+        review.setUserId(usuario);
+        review.setProduct(product);
+        review.setRating((int) (usuario % 5) + 1);
+        review.setComment("Buen producto");
+        return reviewService.createReview(review);
+    }
+}
@@ -0,0 +1,53 @@
+package com.products.product.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    public static final String IMAGENES_EXECUTOR = "imagenesExecutor";
+    public static final String MINIATURAS_EXECUTOR = "miniaturasExecutor";
+
+    /**
+     * Pool acotado para las subidas de imágenes, separado de los hilos de Tomcat.
+     * Si la cola se llena, la subida se rechaza y la petición responde 503, sin ocupar el hilo
+     * de Tomcat con ella.
+     */
+    @Bean(name = IMAGENES_EXECUTOR)
+    public ThreadPoolTaskExecutor imagenesExecutor(@Value("${imagenes.subida.hilos:4}") int hilos,
+                                                   @Value("${imagenes.subida.cola:100}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("imagenes-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Pool para generar miniaturas. Es trabajo de CPU y memoria, así que va aparte de las
+     * subidas y con pocos hilos; con la cola llena la tarea se rechaza y MiniaturaService la
+     * descarta, nunca se genera en el hilo que la solicita.
+     */
+    @Bean(name = MINIATURAS_EXECUTOR)
+    public ThreadPoolTaskExecutor miniaturasExecutor(@Value("${imagenes.miniaturas.hilos:2}") int hilos,
+                                                     @Value("${imagenes.miniaturas.cola:100}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("miniaturas-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,29 @@
+package com.products.product.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTOS = "productos";
+
+    @Value("${productos.cache.spec:maximumSize=10000,expireAfterWrite=60s,recordStats}")
+    private String productosSpec;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(PRODUCTOS);
+        cacheManager.setCacheSpecification(productosSpec);
+        cacheManager.setAllowNullValues(false);
+        // Las invalidaciones dentro de una transacción se aplican tras el commit,
+        // así ninguna lectura concurrente vuelve a cachear el valor anterior
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
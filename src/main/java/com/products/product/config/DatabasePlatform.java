@@ -0,0 +1,41 @@
+package com.products.product.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Identifica el motor de base de datos en uso para elegir entre SQL específico de
+ * PostgreSQL (producción) y SQL estándar (H2 en pruebas y entornos locales).
+ */
+@Component
+public class DatabasePlatform {
+    private static final Logger logger = LoggerFactory.getLogger(DatabasePlatform.class);
+
+    private final DataSource dataSource;
+    private volatile Boolean postgreSQL;
+
+    public DatabasePlatform(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public boolean isPostgreSQL() {
+        Boolean resultado = postgreSQL;
+        if (resultado == null) {
+            try (Connection connection = dataSource.getConnection()) {
+                String producto = connection.getMetaData().getDatabaseProductName();
+                resultado = "PostgreSQL".equalsIgnoreCase(producto);
+                logger.info("Motor de base de datos detectado: {}", producto);
+            } catch (SQLException e) {
+                logger.warn("No se pudo detectar el motor de base de datos: {}", e.getMessage());
+                return false;
+            }
+            postgreSQL = resultado;
+        }
+        return resultado;
+    }
+}
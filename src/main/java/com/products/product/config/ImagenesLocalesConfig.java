@@ -0,0 +1,37 @@
+package com.products.product.config;
+
+import com.products.product.repository.LocalImageStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Sirve las imágenes del almacenamiento local. El manejador de recursos de Spring atiende
+ * peticiones Range (206) y condicionales (304); el nombre es el hash del contenido, así
+ * que la respuesta puede cachearse como inmutable.
+ */
+@Configuration
+@ConditionalOnProperty(name = "imagenes.store", havingValue = "local")
+public class ImagenesLocalesConfig implements WebMvcConfigurer {
+
+    private final LocalImageStore localImageStore;
+    private final String urlBase;
+
+    public ImagenesLocalesConfig(LocalImageStore localImageStore,
+                                 @Value("${imagenes.local.url-base:/imagenes/}") String urlBase) {
+        this.localImageStore = localImageStore;
+        this.urlBase = urlBase.endsWith("/") ? urlBase : urlBase + "/";
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(urlBase + "**")
+                .addResourceLocations(localImageStore.getDirectorio().toUri().toString())
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+    }
+}
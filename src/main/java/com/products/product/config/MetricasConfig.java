@@ -0,0 +1,80 @@
+package com.products.product.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas propias de la aplicación, exportadas en /actuator/prometheus:
+ * <ul>
+ *   <li>{@value #SERVICIO}: cada método de los servicios anotados con {@code @Timed}</li>
+ *   <li>{@value #CONSULTAS}: cada llamada a un repositorio de Spring Data</li>
+ * </ul>
+ * Los cubos SLO de los histogramas se configuran en management.metrics.distribution.slo.
+ */
+@Configuration
+public class MetricasConfig {
+
+    public static final String SERVICIO = "productos.servicio";
+    public static final String CONSULTAS = "productos.consultas";
+    public static final String CONFLICTOS_STOCK = "productos.stock.conflictos";
+    public static final String CONFLICTOS_VERSION = "productos.version.conflictos";
+
+    // Hace efectivo @Timed en los beans de Spring
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // Estático: los post-procesadores se crean antes que el resto de beans, el registro se
+    // resuelve en la primera consulta
+    @Bean
+    public static BeanPostProcessor metricasRepositorios(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    RepositoryMethodInvocationListener listener = new TemporizadorConsultas(meterRegistry);
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Registra la duración de cada método de repositorio con su interfaz, método y resultado
+     */
+    static class TemporizadorConsultas implements RepositoryMethodInvocationListener {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        TemporizadorConsultas(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void afterInvocation(RepositoryMethodInvocation invocation) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return;
+            }
+            RepositoryMethodInvocationResult resultado = invocation.getResult();
+            Timer.builder(CONSULTAS)
+                    .description("Duración de las consultas a repositorios")
+                    .tag("repositorio", invocation.getRepositoryInterface().getSimpleName())
+                    .tag("metodo", invocation.getMethod().getName())
+                    .tag("estado", resultado == null ? "desconocido" : resultado.getState().name().toLowerCase())
+                    .register(registry)
+                    .record(invocation.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+    }
+}
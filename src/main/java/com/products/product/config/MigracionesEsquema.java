@@ -0,0 +1,40 @@
+package com.products.product.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cambios de esquema que ddl-auto=update no aplica por sí solo, como borrar índices.
+ * Se ejecutan al arrancar, cuando Hibernate ya actualizó las tablas, y son idempotentes.
+ * Cada uno se retira una vez desplegado en todos los entornos.
+ */
+@Component
+public class MigracionesEsquema {
+    private static final Logger logger = LoggerFactory.getLogger(MigracionesEsquema.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MigracionesEsquema(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrar() {
+        // idx_reviews_product_rating empieza por product_id y sustituye a idx_reviews_product.
+        // Temporal: quitar en la versión siguiente
+        ejecutar("DROP INDEX IF EXISTS idx_reviews_product");
+    }
+
+    private void ejecutar(String sql) {
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo aplicar la migración de esquema \"{}\": {}", sql, e.getMessage());
+        }
+    }
+}
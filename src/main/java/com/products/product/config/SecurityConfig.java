@@ -1,12 +1,15 @@
 package com.products.product.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
@@ -14,11 +17,15 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${seguridad.token-interno:}") String tokenInterno) throws Exception {
         return http
                 .csrf(csrf -> csrf.disable())
+                .addFilterBefore(new TokenInternoFilter(tokenInterno), AnonymousAuthenticationFilter.class)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/**").permitAll() // 👉 Permite libre acceso
+                        // Solo para otros microservicios: vacía las cachés de entregas
+                        .requestMatchers(HttpMethod.POST, "/api/reviews/entregas/**").hasRole(TokenInternoFilter.ROL)
                         .anyRequest().permitAll() // o `.authenticated()` si luego agregas JWT
                 )
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
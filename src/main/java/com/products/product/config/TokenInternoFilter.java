@@ -0,0 +1,43 @@
+package com.products.product.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Autentica a los otros microservicios por el token compartido de la cabecera {@value #CABECERA}
+ * y les da el rol {@value #ROL}. Sin token configurado no autentica a nadie
+ */
+class TokenInternoFilter extends OncePerRequestFilter {
+
+    static final String CABECERA = "X-Token-Interno";
+    static final String ROL = "INTERNO";
+
+    private final byte[] token;
+
+    TokenInternoFilter(String token) {
+        this.token = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String recibido = request.getHeader(CABECERA);
+        // Comparación en tiempo constante para no filtrar el token por la latencia
+        if (token.length > 0 && recibido != null
+                && MessageDigest.isEqual(token, recibido.getBytes(StandardCharsets.UTF_8))) {
+            SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                    "servicio-interno", null, AuthorityUtils.createAuthorityList("ROLE_" + ROL)));
+        }
+        chain.doFilter(request, response);
+    }
+}
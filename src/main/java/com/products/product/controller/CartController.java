@@ -1,7 +1,11 @@
 package com.products.product.controller;
 
+import com.products.product.dto.CambioCarrito;
+import com.products.product.dto.ResumenCarrito;
 import com.products.product.entity.CartItem;
+import com.products.product.exception.StockInsuficienteException;
 import com.products.product.service.CartService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,6 +28,27 @@ public class CartController {
         return cartService.getCartItems(userId);
     }
 
+    @GetMapping("/resumen")
+    public ResumenCarrito getCartSummary(@RequestHeader("X-User-Id") String userId) {
+        return cartService.getCartSummary(userId);
+    }
+
+    @PatchMapping
+    public ResponseEntity<?> aplicarCambios(
+            @RequestBody List<CambioCarrito> cambios,
+            @RequestHeader("X-User-Id") String userId) {
+        try {
+            return ResponseEntity.ok(cartService.aplicarCambios(userId, cambios));
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "mensaje", e.getMessage(),
+                "productId", e.getProductId()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+        }
+    }
+
     @PostMapping("/{productId}")
     public ResponseEntity<CartItem> addToCart(
             @PathVariable Long productId,
@@ -1,18 +1,27 @@
 package com.products.product.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.products.product.dto.CursorPage;
+import com.products.product.dto.DisponibilidadProducto;
+import com.products.product.dto.FiltroProductos;
+import com.products.product.dto.ReservaStockItem;
+import com.products.product.entity.EstadoImagen;
 import com.products.product.entity.Product;
 import com.products.product.entity.Categoria;
-import com.products.product.service.CloudinaryService;
+import com.products.product.exception.StockInsuficienteException;
+import com.products.product.service.ImageUploadService;
+import com.products.product.service.ProductSearchService;
 import com.products.product.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -28,11 +37,14 @@ public class ProductController {
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     
     private final ProductService productService;
-    private final CloudinaryService cloudinaryService;
+    private final ProductSearchService productSearchService;
+    private final ImageUploadService imageUploadService;
 
-    public ProductController(ProductService productService, CloudinaryService cloudinaryService) {
+    public ProductController(ProductService productService, ProductSearchService productSearchService,
+                             ImageUploadService imageUploadService) {
         this.productService = productService;
-        this.cloudinaryService = cloudinaryService;
+        this.productSearchService = productSearchService;
+        this.imageUploadService = imageUploadService;
     }
 
     @PostMapping(value = "/crear", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -42,36 +54,41 @@ public class ProductController {
         Product product = objectMapper.readValue(productJson, Product.class);
         
         if (image != null && !image.isEmpty()) {
-            String imageUrl = cloudinaryService.uploadImage(image);
-            product.setImagenUrl(imageUrl);
+            // La imagen se sube en segundo plano; el producto se devuelve con estadoImagen PENDIENTE
+            return imageUploadService.crearConImagen(product, image);
         }
+        product.setEstadoImagen(EstadoImagen.SIN_IMAGEN);
         return productService.createProduct(product);
     }
 
+    @GetMapping("/{id}/imagen/estado")
+    public ResponseEntity<Map<String, Object>> getEstadoImagen(@PathVariable Long id) {
+        try {
+            Product product = productService.getProductById(id);
+            Map<String, Object> response = new HashMap<>();
+            response.put("productId", id);
+            response.put("estadoImagen", product.getEstadoImagen());
+            response.put("imagenUrl", product.getImagenUrl());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public Product updateProduct(@PathVariable Long id,
                                @RequestPart("product") Product productUpdates,
                                @RequestPart(value = "image", required = false) MultipartFile image) throws IOException {
         if (image != null && !image.isEmpty()) {
-            // Si hay una imagen existente, la eliminamos
-            Product existingProduct = productService.getProductById(id);
-            if (existingProduct.getImagenUrl() != null) {
-                cloudinaryService.deleteImage(existingProduct.getImagenUrl());
-            }
-            
-            // Subimos la nueva imagen
-            String imageUrl = cloudinaryService.uploadImage(image);
-            productUpdates.setImagenUrl(imageUrl);
+            // Sube la nueva imagen, elimina la anterior y programa sus miniaturas
+            return imageUploadService.actualizarConImagen(id, productUpdates, image);
         }
         return productService.updateProduct(id, productUpdates);
     }
 
     @DeleteMapping("/{id}")
-    public void deleteProduct(@PathVariable Long id) throws IOException {
-        Product product = productService.getProductById(id);
-        if (product.getImagenUrl() != null) {
-            cloudinaryService.deleteImage(product.getImagenUrl());
-        }
+    public void deleteProduct(@PathVariable Long id) {
+        // La imagen y sus miniaturas se eliminan en segundo plano (tabla image_deletions)
         productService.deleteProduct(id);
     }
 
@@ -83,22 +100,11 @@ public class ProductController {
     @GetMapping("/")
     public ResponseEntity<List<Product>> findAll() {
         try {
-            logger.info("Recibida solicitud para obtener todos los productos");
             List<Product> products = productService.findAll();
-            logger.info("Productos encontrados: {}", products.size());
-            
             if (products == null) {
                 logger.warn("La lista de productos es null");
                 return ResponseEntity.ok(new ArrayList<>());
             }
-            
-            if (products.isEmpty()) {
-                logger.warn("No se encontraron productos en la base de datos");
-            } else {
-                logger.info("Productos recuperados exitosamente");
-                products.forEach(p -> logger.debug("Producto: id={}, nombre={}", p.getId(), p.getNombre()));
-            }
-            
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             logger.error("Error al obtener productos: {}", e.getMessage(), e);
@@ -106,10 +112,33 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/pagina")
+    public ResponseEntity<CursorPage<Product>> findPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(productService.findPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Filtros combinables: nombre, categoria, precioMin, precioMax, soloDisponibles, orden, cursor, size
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<Product>> search(@ModelAttribute FiltroProductos filtro) {
+        try {
+            return ResponseEntity.ok(productService.buscarConFiltros(filtro));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Nuevos endpoints de filtrado
     @GetMapping("/buscar")
-    public List<Product> findByNombre(@RequestParam String nombre) {
-        return productService.findByNombre(nombre);
+    public List<Product> findByNombre(@RequestParam String nombre,
+                                      @RequestParam(required = false) Integer page,
+                                      @RequestParam(required = false) Integer size) {
+        return productSearchService.buscar(nombre, page, size);
     }
 
     @GetMapping("/categoria/{categoria}")
@@ -128,18 +157,29 @@ public class ProductController {
     public ResponseEntity<Map<String, Object>> verificarDisponibilidad(
             @PathVariable Long id,
             @RequestParam Integer cantidad) {
-        boolean disponible = productService.verificarDisponibilidad(id, cantidad);
-        Product product = productService.getProductById(id);
+        DisponibilidadProducto disponibilidad = productService.consultarDisponibilidad(id, cantidad);
+        boolean disponible = disponibilidad.isDisponible();
         
         return ResponseEntity.ok(Map.of(
             "disponible", disponible,
-            "stockActual", product.getCantidad(),
+            "stockActual", disponibilidad.getStockActual(),
             "mensaje", disponible ? 
                 "Producto disponible" : 
                 "No hay suficiente stock disponible"
         ));
     }
 
+    @GetMapping("/disponibilidad")
+    public ResponseEntity<List<DisponibilidadProducto>> verificarDisponibilidad(
+            @RequestParam List<Long> ids,
+            @RequestParam List<Integer> cantidades) {
+        try {
+            return ResponseEntity.ok(productService.verificarDisponibilidad(ids, cantidades));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/{id}/stock")
     public ResponseEntity<Map<String, Object>> actualizarStock(
             @PathVariable Long id,
@@ -147,13 +187,30 @@ public class ProductController {
         Integer cantidad = request.get("cantidad");
         productService.actualizarStock(id, cantidad);
         
-        Product product = productService.getProductById(id);
         return ResponseEntity.ok(Map.of(
             "mensaje", "Stock actualizado correctamente",
-            "stockActual", product.getCantidad()
+            "stockActual", productService.obtenerStock(id)
         ));
     }
 
+    @PostMapping("/stock/batch")
+    public ResponseEntity<Map<String, Object>> reservarStock(@RequestBody List<ReservaStockItem> items) {
+        try {
+            Map<Long, Integer> stockActual = productService.reservarStock(items);
+            return ResponseEntity.ok(Map.of(
+                "mensaje", "Stock reservado correctamente",
+                "stockActual", stockActual
+            ));
+        } catch (StockInsuficienteException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "mensaje", e.getMessage(),
+                "productId", e.getProductId()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+        }
+    }
+
     @PostMapping("/{id}/revertir-stock")
     public ResponseEntity<Map<String, Object>> revertirStock(
             @PathVariable Long id,
@@ -161,10 +218,9 @@ public class ProductController {
         Integer cantidad = request.get("cantidad");
         productService.revertirStock(id, cantidad);
         
-        Product product = productService.getProductById(id);
         return ResponseEntity.ok(Map.of(
             "mensaje", "Stock revertido correctamente",
-            "stockActual", product.getCantidad()
+            "stockActual", productService.obtenerStock(id)
         ));
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.products.product.controller;
+
+import com.products.product.service.ProductExportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/productos/exportar")
+public class ProductExportController {
+
+    private final ProductExportService productExportService;
+
+    public ProductExportController(ProductExportService productExportService) {
+        this.productExportService = productExportService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarCatalogo() {
+        StreamingResponseBody body = productExportService::exportarNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
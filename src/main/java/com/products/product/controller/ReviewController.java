@@ -1,8 +1,14 @@
 package com.products.product.controller;
 
+import com.products.product.dto.OrdenReviews;
+import com.products.product.dto.ResumenValoraciones;
+import com.products.product.dto.ReviewProducto;
 import com.products.product.entity.Review;
+import com.products.product.service.DeliveryValidationService;
 import com.products.product.service.ReviewService;
+import com.products.product.util.Paginacion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,10 +25,12 @@ import java.util.Map;
 public class ReviewController {
 
     private final ReviewService reviewService;
+    private final DeliveryValidationService deliveryValidationService;
 
     @Autowired
-    public ReviewController(ReviewService reviewService) {
+    public ReviewController(ReviewService reviewService, DeliveryValidationService deliveryValidationService) {
         this.reviewService = reviewService;
+        this.deliveryValidationService = deliveryValidationService;
     }
 
     @PostMapping
@@ -42,6 +50,26 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getProductReviews(productId));
     }
 
+    @GetMapping("/product/{productId}/pagina")
+    public ResponseEntity<Map<String, Object>> getProductReviewsPage(
+            @PathVariable Long productId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) OrdenReviews orden) {
+        Slice<ReviewProducto> slice = reviewService.getProductReviewsPage(productId, page, size, orden);
+        return ResponseEntity.ok(Map.of(
+                "reviews", slice.getContent(),
+                "page", slice.getNumber(),
+                "size", slice.getSize(),
+                "hasNext", slice.hasNext()
+        ));
+    }
+
+    @GetMapping("/product/{productId}/resumen")
+    public ResponseEntity<ResumenValoraciones> getRatingSummary(@PathVariable Long productId) {
+        return ResponseEntity.ok(reviewService.getRatingSummary(productId));
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<Review>> getUserReviews(@PathVariable Long userId) {
         return ResponseEntity.ok(reviewService.getUserReviews(userId));
@@ -80,4 +108,27 @@ public class ReviewController {
             return ResponseEntity.ok(errorResponse);
         }
     }
-} 
\ No newline at end of file
+
+    @GetMapping("/can-review/batch")
+    public ResponseEntity<Map<String, Object>> canUserReviewProducts(
+            @RequestParam Long userId,
+            @RequestParam List<Long> productIds) {
+        if (productIds.size() > Paginacion.TAMANO_MAXIMO) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Se admiten como máximo " + Paginacion.TAMANO_MAXIMO + " productos por consulta",
+                "userId", userId
+            ));
+        }
+        return ResponseEntity.ok(Map.of(
+            "userId", userId,
+            "canReview", reviewService.canUserReviewProducts(userId, productIds)
+        ));
+    }
+
+    // Lo llama el servicio de entregas al marcar una entrega como ENTREGADA; exige el token interno (SecurityConfig)
+    @PostMapping("/entregas/invalidar")
+    public ResponseEntity<Void> invalidarEntrega(@RequestParam Long userId, @RequestParam Long productId) {
+        deliveryValidationService.invalidar(userId, productId);
+        return ResponseEntity.noContent().build();
+    }
+}
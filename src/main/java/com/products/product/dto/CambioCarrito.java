@@ -0,0 +1,17 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioCarrito {
+
+    private Long productId;
+
+    private Integer cantidad; // Ignorada en ELIMINAR
+
+    private OperacionCarrito op;
+}
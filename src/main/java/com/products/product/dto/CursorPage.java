@@ -0,0 +1,17 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+
+    private String next; // Cursor opaco para la siguiente página, null si no hay más resultados
+}
@@ -0,0 +1,19 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadProducto {
+
+    private Long productId;
+
+    private Integer cantidadSolicitada;
+
+    private Integer stockActual; // null si el producto no existe
+
+    private boolean disponible;
+}
@@ -0,0 +1,28 @@
+package com.products.product.dto;
+
+import com.products.product.entity.Categoria;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroProductos {
+
+    private String nombre;
+
+    private Categoria categoria;
+
+    private Double precioMin;
+
+    private Double precioMax;
+
+    private boolean soloDisponibles; // Solo productos con cantidad > 0
+
+    private OrdenProductos orden;
+
+    private String cursor;
+
+    private Integer size;
+}
@@ -0,0 +1,40 @@
+package com.products.product.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Línea del carrito con los datos del producto necesarios para mostrarla
+@Data
+@NoArgsConstructor
+public class LineaCarrito {
+
+    private Long itemId;
+
+    private Long productId;
+
+    private String nombre;
+
+    private Double precio;
+
+    private String imagenUrl;
+
+    private Integer stock; // Cantidad disponible del producto
+
+    private Integer quantity;
+
+    private BigDecimal subtotal; // precio * quantity, calculado en CartService
+
+    // Usado por la proyección JPQL de CartItemRepository
+    public LineaCarrito(Long itemId, Long productId, String nombre, Double precio,
+                        String imagenUrl, Integer stock, Integer quantity) {
+        this.itemId = itemId;
+        this.productId = productId;
+        this.nombre = nombre;
+        this.precio = precio;
+        this.imagenUrl = imagenUrl;
+        this.stock = stock;
+        this.quantity = quantity;
+    }
+}
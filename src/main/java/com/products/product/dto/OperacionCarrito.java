@@ -0,0 +1,7 @@
+package com.products.product.dto;
+
+public enum OperacionCarrito {
+    AGREGAR,    // Suma la cantidad a la existente
+    ESTABLECER, // Reemplaza la cantidad
+    ELIMINAR    // Quita el producto del carrito
+}
@@ -0,0 +1,24 @@
+package com.products.product.dto;
+
+import org.springframework.data.domain.Sort;
+
+public enum OrdenProductos {
+    ID(Sort.by(Sort.Order.asc("id"))),
+    PRECIO_ASC(Sort.by(Sort.Order.asc("precio"), Sort.Order.asc("id"))),
+    // Desempate en el mismo sentido que el precio: recorre el índice (precio, id) hacia atrás
+    PRECIO_DESC(Sort.by(Sort.Order.desc("precio"), Sort.Order.desc("id")));
+
+    private final Sort sort;
+
+    OrdenProductos(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean porPrecio() {
+        return this != ID;
+    }
+}
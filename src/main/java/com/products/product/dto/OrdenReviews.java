@@ -0,0 +1,21 @@
+package com.products.product.dto;
+
+import org.springframework.data.domain.Sort;
+
+// El id es creciente con la fecha de alta, así que también sirve como orden por recencia
+public enum OrdenReviews {
+    RECIENTES(Sort.by(Sort.Order.desc("id"))),
+    MEJOR(Sort.by(Sort.Order.desc("rating"), Sort.Order.desc("id"))),
+    PEOR(Sort.by(Sort.Order.asc("rating"), Sort.Order.desc("id"))),
+    VERIFICADAS(Sort.by(Sort.Order.desc("verifiedPurchase"), Sort.Order.desc("id")));
+
+    private final Sort sort;
+
+    OrdenReviews(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+}
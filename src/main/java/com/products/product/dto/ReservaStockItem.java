@@ -0,0 +1,15 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaStockItem {
+
+    private Long productId;
+
+    private Integer cantidad; // Unidades a reservar (descontar del stock)
+}
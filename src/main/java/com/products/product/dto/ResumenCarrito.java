@@ -0,0 +1,22 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenCarrito {
+
+    private String userId;
+
+    private List<LineaCarrito> items;
+
+    private int totalUnidades;
+
+    private BigDecimal total;
+}
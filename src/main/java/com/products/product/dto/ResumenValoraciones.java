@@ -0,0 +1,21 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenValoraciones {
+
+    private Long productId;
+
+    private long ratingCount;
+
+    private double promedio; // 0 si el producto no tiene reseñas
+
+    private Map<Integer, Long> estrellas; // Número de reseñas por estrella (1 a 5)
+}
@@ -0,0 +1,24 @@
+package com.products.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Vista de una reseña sin el producto embebido, para listados paginados
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewProducto {
+
+    private Long id;
+
+    private Long userId;
+
+    private Long productId;
+
+    private Integer rating;
+
+    private String comment;
+
+    private boolean verifiedPurchase;
+}
@@ -0,0 +1,8 @@
+package com.products.product.entity;
+
+public enum EstadoImagen {
+    SIN_IMAGEN,
+    PENDIENTE, // Subida en curso o en cola
+    SUBIDA,
+    ERROR      // Falló tras agotar los reintentos
+}
@@ -0,0 +1,44 @@
+package com.products.product.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Imagen pendiente de eliminar del almacenamiento (outbox). Se inserta en la misma
+ * transacción que deja de referenciarla y la elimina después ImageDeletionWorker.
+ */
+@Entity
+@Table(name = "image_deletions", indexes = {
+        @Index(name = "idx_image_deletions_proximo", columnList = "proximo_intento"),
+        @Index(name = "idx_image_deletions_url", columnList = "url")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 1024)
+    private String url;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private Instant proximoIntento;
+
+    @Column(name = "ultimo_error", length = 1024)
+    private String ultimoError;
+
+    public ImageDeletion(String url, Instant proximoIntento) {
+        this.url = url;
+        this.proximoIntento = proximoIntento;
+    }
+}
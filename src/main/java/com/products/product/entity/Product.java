@@ -1,10 +1,19 @@
 package com.products.product.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_categoria_precio", columnList = "categoria, precio, id"),
+        @Index(name = "idx_products_precio", columnList = "precio, id")
+})
+@DynamicUpdate  // Los UPDATE solo incluyen las columnas modificadas
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,4 +32,33 @@ public class Product {
     private Integer cantidad;
     private String descripcion;
     private String imagenUrl;  // URL de la imagen del producto
-}
\ No newline at end of file
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado_imagen")
+    private EstadoImagen estadoImagen; // Estado de la subida asíncrona de la imagen
+
+    // Inicio de la subida asíncrona en curso; si se alarga demasiado, la tarea se perdió (reinicio)
+    @JsonIgnore
+    @Column(name = "imagen_pendiente_desde")
+    private Instant imagenPendienteDesde;
+
+    // Variantes reducidas de la imagen (lado mayor en px), generadas en segundo plano tras la subida.
+    // Solo lectura en el JSON: al eliminar el producto se encolan para borrarlas del almacenamiento
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "miniatura_160_url")
+    private String miniatura160Url;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "miniatura_320_url")
+    private String miniatura320Url;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "miniatura_640_url")
+    private String miniatura640Url;
+
+    // Control de concurrencia optimista; las sentencias UPDATE del repositorio también lo incrementan
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+}
@@ -0,0 +1,42 @@
+package com.products.product.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Agregado de valoraciones por producto. Se mantiene de forma incremental desde
+ * ReviewService para no tener que leer todas las reseñas al mostrar el promedio.
+ */
+@Entity
+@Table(name = "product_ratings")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRating {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "stars_1", nullable = false)
+    private long stars1;
+
+    @Column(name = "stars_2", nullable = false)
+    private long stars2;
+
+    @Column(name = "stars_3", nullable = false)
+    private long stars3;
+
+    @Column(name = "stars_4", nullable = false)
+    private long stars4;
+
+    @Column(name = "stars_5", nullable = false)
+    private long stars5;
+}
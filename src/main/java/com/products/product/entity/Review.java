@@ -6,7 +6,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        @Index(name = "idx_reviews_product_rating", columnList = "product_id, rating, id"),
+        @Index(name = "idx_reviews_user_product", columnList = "user_id, product_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
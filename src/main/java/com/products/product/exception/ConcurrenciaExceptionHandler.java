@@ -0,0 +1,30 @@
+package com.products.product.exception;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Conflictos de versión que el servicio no resolvió reintentando: el cliente editó sobre una
+ * versión antigua o la contención no cedió. Se responde 409 para que vuelva a leer el producto,
+ * y 428 si pidió un cambio de stock sin indicar la versión sobre la que lo calculó.
+ */
+@RestControllerAdvice
+public class ConcurrenciaExceptionHandler {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> conflictoVersion(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("mensaje", "El producto fue modificado por otra operación; vuelve a leerlo e inténtalo de nuevo"));
+    }
+
+    @ExceptionHandler(VersionRequeridaException.class)
+    public ResponseEntity<Map<String, Object>> versionRequerida(VersionRequeridaException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+                .body(Map.of("mensaje", e.getMessage()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.products.product.exception;
+
+/**
+ * Se lanza cuando una operación intenta descontar más unidades de las disponibles.
+ */
+public class StockInsuficienteException extends RuntimeException {
+
+    private final Long productId;
+
+    public StockInsuficienteException(Long productId) {
+        super("No hay suficiente stock disponible");
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
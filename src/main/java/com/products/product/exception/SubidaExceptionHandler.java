@@ -0,0 +1,31 @@
+package com.products.product.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.util.Map;
+
+/**
+ * Respuestas de las subidas de imágenes. El límite de tamaño se comprueba al resolver el
+ * multipart, antes de llegar al controlador, por eso se maneja aquí y no en cada endpoint.
+ */
+@RestControllerAdvice
+public class SubidaExceptionHandler {
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Map<String, Object>> tamanoExcedido(MaxUploadSizeExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Map.of("mensaje", "La imagen supera el tamaño máximo permitido"));
+    }
+
+    @ExceptionHandler(SubidaRechazadaException.class)
+    public ResponseEntity<Map<String, Object>> subidaRechazada(SubidaRechazadaException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(Map.of("mensaje", e.getMessage()));
+    }
+}
@@ -0,0 +1,12 @@
+package com.products.product.exception;
+
+/**
+ * Se lanza cuando se alcanza el máximo de subidas de imágenes simultáneas y no queda
+ * un hueco libre dentro del tiempo de espera configurado.
+ */
+public class SubidaRechazadaException extends RuntimeException {
+
+    public SubidaRechazadaException() {
+        super("Demasiadas subidas de imágenes en curso, inténtelo más tarde");
+    }
+}
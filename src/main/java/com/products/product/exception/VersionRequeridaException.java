@@ -0,0 +1,11 @@
+package com.products.product.exception;
+
+/**
+ * Se lanza cuando un cambio que solo es seguro sobre una versión concreta del producto llega sin ella.
+ */
+public class VersionRequeridaException extends RuntimeException {
+
+    public VersionRequeridaException(String message) {
+        super(message);
+    }
+}
@@ -1,14 +1,28 @@
 package com.products.product.repository;
 
+import com.products.product.dto.LineaCarrito;
 import com.products.product.entity.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+    // Carga los productos en la misma consulta en lugar de uno por línea
+    @EntityGraph(attributePaths = "product")
     List<CartItem> findByUserId(String userId);
+
+    @Query("SELECT new com.products.product.dto.LineaCarrito(c.id, p.id, p.nombre, p.precio, p.imagenUrl, p.cantidad, c.quantity) " +
+            "FROM CartItem c JOIN c.product p WHERE c.userId = :userId ORDER BY c.id")
+    List<LineaCarrito> findLineasByUserId(@Param("userId") String userId);
+
+    // Filas [productId, quantity] del carrito, sin cargar entidades
+    @Query("SELECT c.product.id, c.quantity FROM CartItem c WHERE c.userId = :userId")
+    List<Object[]> findCantidadesByUserId(@Param("userId") String userId);
     void deleteByUserIdAndProductId(String userId, Long productId);
     CartItem findByUserIdAndProductId(String userId, Long productId);
 }  
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.products.product.repository;
+
+import com.products.product.dto.LineaCarrito;
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Almacenamiento de los carritos. La implementación se elige con la propiedad
+ * {@code carrito.store}: {@code jpa} (tabla cart_items, por defecto) o {@code kv}
+ * (un hash por usuario en un almacén clave-valor con expiración).
+ */
+public interface CartStore {
+
+    List<CartItem> findByUserId(String userId);
+
+    List<LineaCarrito> findLineasByUserId(String userId);
+
+    // null si el producto no está en el carrito
+    CartItem findByUserIdAndProductId(String userId, Long productId);
+
+    CartItem save(CartItem cartItem);
+
+    /**
+     * Suma la cantidad a la línea del producto (creándola si no existe) solo si la
+     * cantidad resultante no supera el stock actual del producto
+     * @param userId ID del usuario
+     * @param product producto a agregar
+     * @param cantidad unidades a sumar
+     * @return la línea resultante, o null si el stock no alcanza
+     */
+    CartItem agregar(String userId, Product product, int cantidad);
+
+    void deleteByUserIdAndProductId(String userId, Long productId);
+
+    // Cantidad por producto del carrito del usuario
+    Map<Long, Integer> findCantidadesByUserId(String userId);
+
+    /**
+     * Como {@link #findCantidadesByUserId}, pero las líneas leídas quedan bloqueadas hasta el final
+     * de la transacción si el almacenamiento lo permite, para que un agregado concurrente no se pierda
+     * @param userId ID del usuario
+     * @return cantidad por producto del carrito del usuario
+     */
+    Map<Long, Integer> bloquearCantidades(String userId);
+
+    /**
+     * Aplica en bloque el resultado de varios cambios sobre el carrito. Las líneas que no existían
+     * al leer se suman a las que otra petición haya creado mientras tanto, sin superar el stock
+     * @param userId ID del usuario
+     * @param existentes cantidades leídas con {@link #bloquearCantidades} al calcular los cambios
+     * @param cantidades cantidad final por producto (inserta o actualiza)
+     * @param eliminados productos a quitar del carrito
+     * @throws com.products.product.exception.StockInsuficienteException si una línea nueva no cabe en el stock
+     */
+    void saveCantidades(String userId, Map<Long, Integer> existentes, Map<Long, Integer> cantidades,
+                        Collection<Long> eliminados);
+}
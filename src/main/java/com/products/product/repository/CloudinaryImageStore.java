@@ -0,0 +1,35 @@
+package com.products.product.repository;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "imagenes.store", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStore implements ImageStore {
+
+    private final Cloudinary cloudinary;
+
+    public CloudinaryImageStore(Cloudinary cloudinary) {
+        this.cloudinary = cloudinary;
+    }
+
+    // El cliente HTTP envía el File por streaming sin cargarlo en memoria
+    @Override
+    public String guardar(File fichero) throws IOException {
+        Map uploadResult = cloudinary.uploader().upload(fichero, ObjectUtils.emptyMap());
+        return (String) uploadResult.get("url");
+    }
+
+    @Override
+    public void eliminar(String url) throws IOException {
+        // Extraer el public_id de la URL
+        String publicId = url.substring(url.lastIndexOf("/") + 1, url.lastIndexOf("."));
+        cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+    }
+}
@@ -0,0 +1,25 @@
+package com.products.product.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Funciones de texto completo de PostgreSQL para consultas Criteria, que no tienen el
+ * operador {@code @@}. Se registra en META-INF/services; solo deben usarse con PostgreSQL.
+ */
+public class FuncionesTextoCompleto implements FunctionContributor {
+
+    public static final String NOMBRE_COINCIDE = "nombre_coincide";
+
+    // La expresión debe ser idéntica a la del índice idx_products_nombre_tsv para que se use
+    public static final String VECTOR_NOMBRE = "to_tsvector('spanish', coalesce(%s, ''))";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                NOMBRE_COINCIDE,
+                "(" + VECTOR_NOMBRE.formatted("?1") + " @@ to_tsquery('spanish', ?2))",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
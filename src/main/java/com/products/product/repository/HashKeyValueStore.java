@@ -0,0 +1,29 @@
+package com.products.product.repository;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Operaciones de hash con expiración, con la misma semántica que los comandos de Redis
+ * (HGETALL, HGET, HSET, HDEL, HINCRBY, EXPIRE). Una clave expirada se comporta como inexistente.
+ */
+public interface HashKeyValueStore {
+
+    // HGETALL: mapa vacío si la clave no existe
+    Map<String, String> getAll(String key);
+
+    // HGET: null si la clave o el campo no existen
+    String get(String key, String field);
+
+    // HSET
+    void put(String key, String field, String value);
+
+    // HDEL: elimina la clave completa cuando se queda sin campos
+    void delete(String key, String field);
+
+    // HINCRBY: atómico; un campo inexistente parte de 0. Devuelve el valor resultante
+    long increment(String key, String field, long delta);
+
+    // EXPIRE
+    void expire(String key, Duration ttl);
+}
@@ -0,0 +1,34 @@
+package com.products.product.repository;
+
+import com.products.product.entity.ImageDeletion;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImageDeletionRepository extends JpaRepository<ImageDeletion, Long> {
+
+    // Lote de eliminaciones vencidas. Timeout -2 = SKIP LOCKED en PostgreSQL: varias instancias
+    // drenan a la vez sin repartirse las mismas filas ni esperarse entre sí
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM ImageDeletion d WHERE d.proximoIntento <= :ahora ORDER BY d.proximoIntento, d.id")
+    List<ImageDeletion> findVencidasForUpdate(@Param("ahora") Instant ahora, Limit limit);
+
+    // Cancela las eliminaciones pendientes de URLs que un producto vuelve a usar: el almacenamiento
+    // local reutiliza el fichero de una imagen con el mismo contenido
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ImageDeletion d WHERE d.url IN :urls")
+    int deleteByUrlIn(@Param("urls") Collection<String> urls);
+}
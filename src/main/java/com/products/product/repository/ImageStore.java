@@ -0,0 +1,24 @@
+package com.products.product.repository;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Almacenamiento de imágenes de producto. La implementación se elige con la propiedad
+ * imagenes.store: cloudinary (por defecto) o local (sistema de ficheros del servidor).
+ */
+public interface ImageStore {
+
+    /**
+     * Guarda el contenido del fichero
+     * @param fichero imagen en disco; no se modifica ni se borra
+     * @return URL pública de la imagen guardada
+     */
+    String guardar(File fichero) throws IOException;
+
+    /**
+     * Elimina la imagen. Se llama cuando el producto que la usaba ya no la referencia.
+     * @param url URL devuelta por {@link #guardar(File)}
+     */
+    void eliminar(String url) throws IOException;
+}
@@ -0,0 +1,105 @@
+package com.products.product.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor clave-valor embebido para pruebas y ejecución local. Las claves expiradas se
+ * ignoran al leerlas y se purgan periódicamente.
+ */
+@Component
+@ConditionalOnProperty(name = "carrito.store", havingValue = "kv")
+public class InMemoryHashKeyValueStore implements HashKeyValueStore {
+
+    private static final class Hash {
+        final Map<String, String> campos = new ConcurrentHashMap<>();
+        volatile long expiraEn = Long.MAX_VALUE;
+    }
+
+    private final Map<String, Hash> hashes = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    @Autowired
+    public InMemoryHashKeyValueStore() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryHashKeyValueStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Map<String, String> getAll(String key) {
+        Hash hash = vigente(key);
+        return hash == null ? Map.of() : Map.copyOf(hash.campos);
+    }
+
+    @Override
+    public String get(String key, String field) {
+        Hash hash = vigente(key);
+        return hash == null ? null : hash.campos.get(field);
+    }
+
+    @Override
+    public void put(String key, String field, String value) {
+        hashes.compute(key, (k, hash) -> {
+            Hash destino = hash == null || expirado(hash) ? new Hash() : hash;
+            destino.campos.put(field, value);
+            return destino;
+        });
+    }
+
+    @Override
+    public void delete(String key, String field) {
+        hashes.computeIfPresent(key, (k, hash) -> {
+            hash.campos.remove(field);
+            return hash.campos.isEmpty() || expirado(hash) ? null : hash;
+        });
+    }
+
+    @Override
+    public long increment(String key, String field, long delta) {
+        long[] resultado = new long[1];
+        hashes.compute(key, (k, hash) -> {
+            Hash destino = hash == null || expirado(hash) ? new Hash() : hash;
+            String valor = destino.campos.merge(field, Long.toString(delta),
+                    (actual, incremento) -> Long.toString(Long.parseLong(actual) + Long.parseLong(incremento)));
+            resultado[0] = Long.parseLong(valor);
+            return destino;
+        });
+        return resultado[0];
+    }
+
+    @Override
+    public void expire(String key, Duration ttl) {
+        Hash hash = vigente(key);
+        if (hash != null) {
+            hash.expiraEn = clock.millis() + ttl.toMillis();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${carrito.purga-ms:60000}")
+    public void purgarExpirados() {
+        hashes.values().removeIf(this::expirado);
+    }
+
+    private Hash vigente(String key) {
+        Hash hash = hashes.get(key);
+        if (hash != null && expirado(hash)) {
+            hashes.remove(key, hash);
+            return null;
+        }
+        return hash;
+    }
+
+    private boolean expirado(Hash hash) {
+        return clock.millis() >= hash.expiraEn;
+    }
+}
@@ -0,0 +1,228 @@
+package com.products.product.repository;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.dto.LineaCarrito;
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Product;
+import com.products.product.exception.StockInsuficienteException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "carrito.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+    private static final Logger logger = LoggerFactory.getLogger(JpaCartStore.class);
+
+    private static final String RESTRICCION_UNICA = "uk_cart_items_user_product";
+
+    // Upsert con guarda de stock en una sola sentencia; sin fila devuelta si el stock no alcanza.
+    // ON CONFLICT necesita la restricción única que asegura migrarRestriccionUnica
+    private static final String SUMAR_POSTGRES =
+            "INSERT INTO cart_items (user_id, product_id, quantity) " +
+            "SELECT ?, p.id, ? FROM products p WHERE p.id = ? AND p.cantidad >= ? " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity " +
+            "WHERE (SELECT p.cantidad FROM products p WHERE p.id = EXCLUDED.product_id) >= cart_items.quantity + EXCLUDED.quantity";
+
+    private static final String AGREGAR_POSTGRES = SUMAR_POSTGRES + " RETURNING id, quantity";
+
+    // Equivalente con MERGE estándar para H2, que no soporta ON CONFLICT DO UPDATE
+    private static final String AGREGAR_ESTANDAR =
+            "MERGE INTO cart_items c USING (" +
+            "SELECT CAST(? AS VARCHAR(255)) AS user_id, p.id AS product_id, CAST(? AS INTEGER) AS quantity, p.cantidad AS stock " +
+            "FROM products p WHERE p.id = ?) s " +
+            "ON (c.user_id = s.user_id AND c.product_id = s.product_id) " +
+            "WHEN MATCHED AND c.quantity + s.quantity <= s.stock THEN UPDATE SET quantity = c.quantity + s.quantity " +
+            "WHEN NOT MATCHED AND s.quantity <= s.stock THEN INSERT (user_id, product_id, quantity) " +
+            "VALUES (s.user_id, s.product_id, s.quantity)";
+
+    // Mismo orden de bloqueo que el resto de escrituras por producto
+    private static final String BLOQUEAR_SQL =
+            "SELECT product_id, quantity FROM cart_items WHERE user_id = ? ORDER BY product_id FOR UPDATE";
+
+    // Migración de la restricción única de la que dependen ON CONFLICT y MERGE. SQL estándar:
+    // la línea con menor id se queda con la suma de las cantidades y las demás se borran
+    private static final String EXISTE_RESTRICCION_SQL =
+            "SELECT COUNT(*) FROM information_schema.table_constraints " +
+            "WHERE LOWER(table_name) = 'cart_items' AND LOWER(constraint_name) = '" + RESTRICCION_UNICA + "'";
+
+    private static final String SUMAR_DUPLICADOS_SQL =
+            "UPDATE cart_items c SET quantity = (SELECT SUM(d.quantity) FROM cart_items d " +
+            "WHERE d.user_id = c.user_id AND d.product_id = c.product_id) " +
+            "WHERE EXISTS (SELECT 1 FROM cart_items d WHERE d.user_id = c.user_id AND d.product_id = c.product_id AND d.id > c.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM cart_items d WHERE d.user_id = c.user_id AND d.product_id = c.product_id AND d.id < c.id)";
+
+    private static final String BORRAR_DUPLICADOS_SQL =
+            "DELETE FROM cart_items c WHERE EXISTS (SELECT 1 FROM cart_items d " +
+            "WHERE d.user_id = c.user_id AND d.product_id = c.product_id AND d.id < c.id)";
+
+    private static final String CREAR_RESTRICCION_SQL =
+            "ALTER TABLE cart_items ADD CONSTRAINT " + RESTRICCION_UNICA + " UNIQUE (user_id, product_id)";
+
+    private final CartItemRepository cartItemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public JpaCartStore(CartItemRepository cartItemRepository, JdbcTemplate jdbcTemplate, DatabasePlatform databasePlatform,
+                        PlatformTransactionManager transactionManager) {
+        this.cartItemRepository = cartItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.databasePlatform = databasePlatform;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Crea la restricción única (user_id, product_id) si falta. Hibernate solo la añade con
+     * ddl-auto=update y no puede hacerlo si ya hay líneas duplicadas, así que antes se fusionan
+     * sumando sus cantidades. Se ejecuta antes de atender peticiones.
+     * @return número de líneas duplicadas eliminadas al fusionar
+     */
+    @PostConstruct
+    public int migrarRestriccionUnica() {
+        if (existeRestriccion()) {
+            return 0;
+        }
+        Integer fusionadas = transactionTemplate.execute(estado -> {
+            if (databasePlatform.isPostgreSQL()) {
+                // Otras instancias pueden seguir escribiendo durante un despliegue gradual
+                jdbcTemplate.execute("LOCK TABLE cart_items IN SHARE ROW EXCLUSIVE MODE");
+            }
+            // Otra instancia que arrancó a la vez pudo crearla mientras se esperaba el bloqueo
+            if (existeRestriccion()) {
+                return null;
+            }
+            jdbcTemplate.update(SUMAR_DUPLICADOS_SQL);
+            int borradas = jdbcTemplate.update(BORRAR_DUPLICADOS_SQL);
+            jdbcTemplate.execute(CREAR_RESTRICCION_SQL);
+            return borradas;
+        });
+        if (fusionadas == null) {
+            return 0;
+        }
+        logger.info("Restricción {} creada; {} líneas de carrito duplicadas fusionadas", RESTRICCION_UNICA, fusionadas);
+        return fusionadas;
+    }
+
+    private boolean existeRestriccion() {
+        Integer existentes = jdbcTemplate.queryForObject(EXISTE_RESTRICCION_SQL, Integer.class);
+        return existentes != null && existentes > 0;
+    }
+
+    @Override
+    public List<CartItem> findByUserId(String userId) {
+        return cartItemRepository.findByUserId(userId);
+    }
+
+    @Override
+    public List<LineaCarrito> findLineasByUserId(String userId) {
+        return cartItemRepository.findLineasByUserId(userId);
+    }
+
+    @Override
+    public CartItem findByUserIdAndProductId(String userId, Long productId) {
+        return cartItemRepository.findByUserIdAndProductId(userId, productId);
+    }
+
+    @Override
+    public CartItem save(CartItem cartItem) {
+        return cartItemRepository.save(cartItem);
+    }
+
+    @Override
+    public CartItem agregar(String userId, Product product, int cantidad) {
+        List<CartItem> resultado;
+        if (databasePlatform.isPostgreSQL()) {
+            resultado = jdbcTemplate.query(AGREGAR_POSTGRES,
+                    (rs, rowNum) -> item(rs.getLong("id"), userId, product, rs.getInt("quantity")),
+                    userId, cantidad, product.getId(), cantidad);
+        } else {
+            if (jdbcTemplate.update(AGREGAR_ESTANDAR, userId, cantidad, product.getId()) == 0) {
+                return null;
+            }
+            resultado = jdbcTemplate.query("SELECT id, quantity FROM cart_items WHERE user_id = ? AND product_id = ?",
+                    (rs, rowNum) -> item(rs.getLong("id"), userId, product, rs.getInt("quantity")),
+                    userId, product.getId());
+        }
+        return resultado.isEmpty() ? null : resultado.get(0);
+    }
+
+    @Override
+    public void deleteByUserIdAndProductId(String userId, Long productId) {
+        cartItemRepository.deleteByUserIdAndProductId(userId, productId);
+    }
+
+    @Override
+    public Map<Long, Integer> findCantidadesByUserId(String userId) {
+        Map<Long, Integer> cantidades = new HashMap<>();
+        for (Object[] fila : cartItemRepository.findCantidadesByUserId(userId)) {
+            cantidades.putIfAbsent((Long) fila[0], (Integer) fila[1]);
+        }
+        return cantidades;
+    }
+
+    @Override
+    public Map<Long, Integer> bloquearCantidades(String userId) {
+        Map<Long, Integer> cantidades = new HashMap<>();
+        jdbcTemplate.query(BLOQUEAR_SQL,
+                rs -> { cantidades.putIfAbsent(rs.getLong("product_id"), rs.getInt("quantity")); }, userId);
+        return cantidades;
+    }
+
+    // Sentencias JDBC por lotes: una ida y vuelta por tipo de operación en lugar de una por producto.
+    // Las líneas existentes están bloqueadas por bloquearCantidades; las nuevas usan el upsert de
+    // agregar para sumarse a una línea creada a la vez por otra petición
+    @Override
+    public void saveCantidades(String userId, Map<Long, Integer> existentes, Map<Long, Integer> cantidades,
+                               Collection<Long> eliminados) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> nuevos = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        boolean postgres = databasePlatform.isPostgreSQL();
+        cantidades.forEach((productId, quantity) -> {
+            if (existentes.containsKey(productId)) {
+                updates.add(new Object[]{quantity, userId, productId});
+            } else {
+                nuevos.add(productId);
+                inserts.add(postgres ? new Object[]{userId, quantity, productId, quantity}
+                        : new Object[]{userId, quantity, productId});
+            }
+        });
+        List<Object[]> deletes = eliminados.stream()
+                .filter(existentes::containsKey)
+                .map(productId -> new Object[]{userId, productId})
+                .toList();
+
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE user_id = ? AND product_id = ?", deletes);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE cart_items SET quantity = ? WHERE user_id = ? AND product_id = ?", updates);
+        }
+        if (!inserts.isEmpty()) {
+            int[] filas = jdbcTemplate.batchUpdate(postgres ? SUMAR_POSTGRES : AGREGAR_ESTANDAR, inserts);
+            for (int i = 0; i < filas.length; i++) {
+                if (filas[i] == 0) {
+                    throw new StockInsuficienteException(nuevos.get(i));
+                }
+            }
+        }
+    }
+
+    private CartItem item(Long id, String userId, Product product, int quantity) {
+        return new CartItem(id, product, quantity, userId);
+    }
+}
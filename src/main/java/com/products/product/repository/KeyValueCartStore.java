@@ -0,0 +1,165 @@
+package com.products.product.repository;
+
+import com.products.product.dto.LineaCarrito;
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Carrito guardado como un hash por usuario ({@code carrito:<userId>}: productId -> cantidad).
+ * Cada escritura renueva la expiración, de modo que los carritos abandonados desaparecen solos.
+ * Los datos del producto se leen de la base de datos en una única consulta por carrito.
+ * Un campo a 0 o menos (lo deja la compensación de {@link #agregar}) equivale a no tenerlo.
+ */
+@Component
+@ConditionalOnProperty(name = "carrito.store", havingValue = "kv")
+public class KeyValueCartStore implements CartStore {
+
+    private static final String PREFIJO = "carrito:";
+
+    private final HashKeyValueStore hashes;
+    private final ProductRepository productRepository;
+    private final Duration ttl;
+
+    public KeyValueCartStore(HashKeyValueStore hashes,
+                             ProductRepository productRepository,
+                             @Value("${carrito.ttl:7d}") Duration ttl) {
+        this.hashes = hashes;
+        this.productRepository = productRepository;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public List<CartItem> findByUserId(String userId) {
+        Map<Long, Integer> cantidades = cantidades(userId);
+        List<CartItem> items = new ArrayList<>();
+        for (Product product : productos(cantidades)) {
+            items.add(item(userId, product, cantidades.get(product.getId())));
+        }
+        return items;
+    }
+
+    @Override
+    public List<LineaCarrito> findLineasByUserId(String userId) {
+        Map<Long, Integer> cantidades = cantidades(userId);
+        List<LineaCarrito> lineas = new ArrayList<>();
+        for (Product product : productos(cantidades)) {
+            lineas.add(new LineaCarrito(null, product.getId(), product.getNombre(), product.getPrecio(),
+                    product.getImagenUrl(), product.getCantidad(), cantidades.get(product.getId())));
+        }
+        return lineas;
+    }
+
+    @Override
+    public CartItem findByUserIdAndProductId(String userId, Long productId) {
+        String cantidad = hashes.get(clave(userId), productId.toString());
+        if (cantidad == null || Integer.parseInt(cantidad) <= 0) {
+            return null;
+        }
+        return productRepository.findById(productId)
+                .map(product -> item(userId, product, Integer.valueOf(cantidad)))
+                .orElse(null);
+    }
+
+    @Override
+    public CartItem save(CartItem cartItem) {
+        String clave = clave(cartItem.getUserId());
+        hashes.put(clave, cartItem.getProduct().getId().toString(), cartItem.getQuantity().toString());
+        hashes.expire(clave, ttl);
+        return cartItem;
+    }
+
+    @Override
+    public CartItem agregar(String userId, Product product, int cantidad) {
+        String clave = clave(userId);
+        String campo = product.getId().toString();
+        // Se suma de forma atómica y se comprueba después: dos peticiones simultáneas no pueden
+        // leer la misma cantidad y pisarse. Si se pasa del stock, se deshace solo lo sumado aquí
+        long nueva = hashes.increment(clave, campo, cantidad);
+        // También si se rechaza: el increment puede haber creado el carrito y sin TTL no caducaría
+        hashes.expire(clave, ttl);
+        Integer stock = productRepository.findCantidadById(product.getId()).orElse(0);
+        if (nueva > stock) {
+            hashes.increment(clave, campo, -cantidad);
+            return null;
+        }
+        return item(userId, product, (int) nueva);
+    }
+
+    @Override
+    public void deleteByUserIdAndProductId(String userId, Long productId) {
+        hashes.delete(clave(userId), productId.toString());
+    }
+
+    @Override
+    public Map<Long, Integer> findCantidadesByUserId(String userId) {
+        return cantidades(userId);
+    }
+
+    // Sin transacciones no hay bloqueo: se lee el carrito tal cual
+    @Override
+    public Map<Long, Integer> bloquearCantidades(String userId) {
+        return cantidades(userId);
+    }
+
+    // Cada cantidad se aplica como incremento sobre lo leído, igual que agregar: un agregado
+    // concurrente se suma en lugar de perderse
+    @Override
+    public void saveCantidades(String userId, Map<Long, Integer> existentes, Map<Long, Integer> cantidades,
+                               Collection<Long> eliminados) {
+        String clave = clave(userId);
+        eliminados.forEach(productId -> hashes.delete(clave, productId.toString()));
+        cantidades.forEach((productId, quantity) -> {
+            int delta = quantity - existentes.getOrDefault(productId, 0);
+            if (delta != 0) {
+                hashes.increment(clave, productId.toString(), delta);
+            }
+        });
+        if (!cantidades.isEmpty()) {
+            hashes.expire(clave, ttl);
+        }
+    }
+
+    private Map<Long, Integer> cantidades(String userId) {
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        hashes.getAll(clave(userId)).forEach((productId, cantidad) -> {
+            int valor = Integer.parseInt(cantidad);
+            if (valor > 0) {
+                cantidades.put(Long.valueOf(productId), valor);
+            }
+        });
+        return cantidades;
+    }
+
+    // Productos del carrito en orden de id; los que ya no existen se omiten
+    private List<Product> productos(Map<Long, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return List.of();
+        }
+        List<Product> products = new ArrayList<>(productRepository.findAllById(cantidades.keySet()));
+        products.sort(Comparator.comparing(Product::getId));
+        return products;
+    }
+
+    private CartItem item(String userId, Product product, Integer quantity) {
+        CartItem item = new CartItem();
+        item.setUserId(userId);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private String clave(String userId) {
+        return PREFIJO + userId;
+    }
+}
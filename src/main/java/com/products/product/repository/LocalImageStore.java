@@ -0,0 +1,181 @@
+package com.products.product.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Guarda las imágenes en un directorio local, con el SHA-256 del contenido como nombre:
+ * la misma imagen subida varias veces ocupa un único fichero. Se sirven desde
+ * {@link com.products.product.config.ImagenesLocalesConfig}.
+ * <p>
+ * Un fichero reutilizado puede estar encolado para eliminarse por el producto que lo soltó
+ * mientras el nuevo producto aún no guarda su URL. Por eso guardar y eliminar se excluyen por
+ * nombre de fichero, y un fichero devuelto por guardar no se elimina hasta pasado el periodo de
+ * gracia: la eliminación falla y el outbox la reintenta, cuando ya se ve la nueva referencia.
+ */
+@Component
+@ConditionalOnProperty(name = "imagenes.store", havingValue = "local")
+public class LocalImageStore implements ImageStore {
+    private static final Logger logger = LoggerFactory.getLogger(LocalImageStore.class);
+
+    private static final Pattern NOMBRE = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+    private static final int BUFFER = 64 * 1024;
+    private static final int BLOQUEOS = 64;
+
+    private final ProductRepository productRepository;
+    private final Path directorio;
+    private final String urlBase;
+    private final Duration gracia;
+    private final Clock clock;
+    // Bloqueos repartidos por nombre de fichero; el almacenamiento local implica una sola instancia
+    private final Object[] bloqueos = new Object[BLOQUEOS];
+    // Última vez que guardar devolvió cada fichero, solo mientras dura la gracia
+    private final Map<String, Instant> devueltos = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LocalImageStore(ProductRepository productRepository,
+                           @Value("${imagenes.local.directorio:${java.io.tmpdir}/imagenes}") String directorio,
+                           @Value("${imagenes.local.url-base:/imagenes/}") String urlBase,
+                           @Value("${imagenes.local.gracia:15m}") Duration gracia) throws IOException {
+        this(productRepository, directorio, urlBase, gracia, Clock.systemUTC());
+    }
+
+    public LocalImageStore(ProductRepository productRepository, String directorio, String urlBase,
+                           Duration gracia, Clock clock) throws IOException {
+        this.productRepository = productRepository;
+        this.directorio = Files.createDirectories(Path.of(directorio)).toAbsolutePath();
+        this.urlBase = urlBase.endsWith("/") ? urlBase : urlBase + "/";
+        this.gracia = gracia;
+        this.clock = clock;
+        for (int i = 0; i < BLOQUEOS; i++) {
+            bloqueos[i] = new Object();
+        }
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    @Override
+    public String guardar(File fichero) throws IOException {
+        try (FileChannel origen = FileChannel.open(fichero.toPath(), StandardOpenOption.READ)) {
+            String nombre = nombrePorContenido(origen);
+            synchronized (bloqueo(nombre)) {
+                Instant ahora = clock.instant();
+                devueltos.values().removeIf(devuelto -> !devuelto.isAfter(ahora.minus(gracia)));
+                devueltos.put(nombre, ahora);
+                copiar(origen, directorio.resolve(nombre));
+            }
+            return urlBase + nombre;
+        }
+    }
+
+    private void copiar(FileChannel origen, Path destino) throws IOException {
+        if (Files.exists(destino)) {
+            return;
+        }
+        // Se escribe en un temporal del mismo directorio y se renombra: nunca se sirve a medias
+        Path temporal = Files.createTempFile(directorio, ".subida-", ".tmp");
+        try {
+            try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                origen.position(0);
+                long tamano = origen.size();
+                long escritos = 0;
+                // Copia entre canales sin pasar por buffers de la JVM
+                while (escritos < tamano) {
+                    escritos += salida.transferFrom(origen, escritos, tamano - escritos);
+                }
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public void eliminar(String url) throws IOException {
+        String nombre = url.substring(url.lastIndexOf("/") + 1);
+        if (!NOMBRE.matcher(nombre).matches()) {
+            logger.warn("URL de imagen ajena al almacenamiento local: {}", url);
+            return;
+        }
+        synchronized (bloqueo(nombre)) {
+            Instant devuelto = devueltos.get(nombre);
+            if (devuelto != null && devuelto.isAfter(clock.instant().minus(gracia))) {
+                // Un producto nuevo puede no haber guardado todavía la URL: se reintenta más tarde
+                throw new IOException("Imagen " + nombre + " reutilizada hace menos de " + gracia);
+            }
+            // Otro producto con la misma imagen comparte el fichero
+            if (productRepository.contarReferenciasImagen(url) > 0) {
+                return;
+            }
+            Files.deleteIfExists(directorio.resolve(nombre));
+        }
+    }
+
+    private Object bloqueo(String nombre) {
+        return bloqueos[Math.floorMod(nombre.hashCode(), BLOQUEOS)];
+    }
+
+    // SHA-256 del contenido más la extensión según la firma del formato
+    private String nombrePorContenido(FileChannel origen) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+        byte[] cabecera = new byte[12];
+        int leidosCabecera = 0;
+        while (origen.read(buffer) != -1) {
+            buffer.flip();
+            while (leidosCabecera < cabecera.length && buffer.hasRemaining()) {
+                cabecera[leidosCabecera++] = buffer.get();
+            }
+            buffer.position(0);
+            sha256.update(buffer);
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(sha256.digest()) + extension(cabecera);
+    }
+
+    private static String extension(byte[] c) {
+        if ((c[0] & 0xFF) == 0xFF && (c[1] & 0xFF) == 0xD8 && (c[2] & 0xFF) == 0xFF) {
+            return ".jpg";
+        }
+        if ((c[0] & 0xFF) == 0x89 && c[1] == 'P' && c[2] == 'N' && c[3] == 'G') {
+            return ".png";
+        }
+        if (c[0] == 'G' && c[1] == 'I' && c[2] == 'F') {
+            return ".gif";
+        }
+        if (c[0] == 'R' && c[1] == 'I' && c[2] == 'F' && c[3] == 'F'
+                && c[8] == 'W' && c[9] == 'E' && c[10] == 'B' && c[11] == 'P') {
+            return ".webp";
+        }
+        return ".img";
+    }
+}
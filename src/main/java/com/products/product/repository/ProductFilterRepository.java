@@ -0,0 +1,13 @@
+package com.products.product.repository;
+
+import com.products.product.entity.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ProductFilterRepository {
+
+    // Ejecuta la especificación como una única consulta ordenada y limitada, sin COUNT
+    List<Product> findFiltered(Specification<Product> spec, Sort sort, int limit);
+}
@@ -0,0 +1,62 @@
+package com.products.product.repository;
+
+import com.products.product.entity.ProductRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Long> {
+
+    // Crea la fila del producto a partir de las reseñas existentes si aún no existe (PostgreSQL)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO product_ratings (product_id, rating_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5) " +
+            "SELECT CAST(:productId AS BIGINT), COUNT(*), COALESCE(SUM(r.rating), 0), " +
+            "COUNT(CASE WHEN r.rating = 1 THEN 1 END), COUNT(CASE WHEN r.rating = 2 THEN 1 END), " +
+            "COUNT(CASE WHEN r.rating = 3 THEN 1 END), COUNT(CASE WHEN r.rating = 4 THEN 1 END), " +
+            "COUNT(CASE WHEN r.rating = 5 THEN 1 END) " +
+            "FROM reviews r WHERE r.product_id = :productId " +
+            "ON CONFLICT (product_id) DO NOTHING", nativeQuery = true)
+    int inicializarPostgres(@Param("productId") Long productId);
+
+    // Mismo comportamiento con MERGE estándar para H2. No es atómico frente a otro MERGE
+    // concurrente del mismo producto: se llama con el producto bloqueado (bloquearProducto)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "MERGE INTO product_ratings t USING (" +
+            "SELECT CAST(:productId AS BIGINT) AS product_id, COUNT(*) AS rating_count, COALESCE(SUM(r.rating), 0) AS rating_sum, " +
+            "COUNT(CASE WHEN r.rating = 1 THEN 1 END) AS stars_1, COUNT(CASE WHEN r.rating = 2 THEN 1 END) AS stars_2, " +
+            "COUNT(CASE WHEN r.rating = 3 THEN 1 END) AS stars_3, COUNT(CASE WHEN r.rating = 4 THEN 1 END) AS stars_4, " +
+            "COUNT(CASE WHEN r.rating = 5 THEN 1 END) AS stars_5 " +
+            "FROM reviews r WHERE r.product_id = :productId) s ON (t.product_id = s.product_id) " +
+            "WHEN NOT MATCHED THEN INSERT (product_id, rating_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5) " +
+            "VALUES (s.product_id, s.rating_count, s.rating_sum, s.stars_1, s.stars_2, s.stars_3, s.stars_4, s.stars_5)",
+            nativeQuery = true)
+    int inicializarEstandar(@Param("productId") Long productId);
+
+    // Bloquea la fila del producto hasta el fin de la transacción para serializar su siembra
+    @Query(value = "SELECT id FROM products WHERE id = :productId FOR UPDATE", nativeQuery = true)
+    Long bloquearProducto(@Param("productId") Long productId);
+
+    /**
+     * Aplica un cambio de valoración en una sola sentencia atómica
+     * @param productId ID del producto
+     * @param quitada estrella que se retira (0 si ninguna)
+     * @param agregada estrella que se añade (0 si ninguna)
+     * @return filas actualizadas
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductRating r SET " +
+            "r.ratingCount = r.ratingCount + (CASE WHEN :agregada > 0 THEN 1 ELSE 0 END) - (CASE WHEN :quitada > 0 THEN 1 ELSE 0 END), " +
+            "r.ratingSum = r.ratingSum + :agregada - :quitada, " +
+            "r.stars1 = r.stars1 + (CASE WHEN :agregada = 1 THEN 1 ELSE 0 END) - (CASE WHEN :quitada = 1 THEN 1 ELSE 0 END), " +
+            "r.stars2 = r.stars2 + (CASE WHEN :agregada = 2 THEN 1 ELSE 0 END) - (CASE WHEN :quitada = 2 THEN 1 ELSE 0 END), " +
+            "r.stars3 = r.stars3 + (CASE WHEN :agregada = 3 THEN 1 ELSE 0 END) - (CASE WHEN :quitada = 3 THEN 1 ELSE 0 END), " +
+            "r.stars4 = r.stars4 + (CASE WHEN :agregada = 4 THEN 1 ELSE 0 END) - (CASE WHEN :quitada = 4 THEN 1 ELSE 0 END), " +
+            "r.stars5 = r.stars5 + (CASE WHEN :agregada = 5 THEN 1 ELSE 0 END) - (CASE WHEN :quitada = 5 THEN 1 ELSE 0 END) " +
+            "WHERE r.productId = :productId")
+    int aplicarCambio(@Param("productId") Long productId,
+                      @Param("quitada") int quitada,
+                      @Param("agregada") int agregada);
+}
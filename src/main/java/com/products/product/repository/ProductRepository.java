@@ -1,14 +1,30 @@
 package com.products.product.repository;
 
+import com.products.product.dto.StockProducto;
+import com.products.product.entity.EstadoImagen;
 import com.products.product.entity.Product;
 import com.products.product.entity.Categoria;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductFilterRepository {
     boolean existsByNombre(String nombre);
     boolean existsById(Long id);
     
@@ -16,4 +32,84 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNombreContainingIgnoreCase(String nombre);
     List<Product> findByCategoria(Categoria categoria);
     List<Product> findByPrecioBetween(Double precioMin, Double precioMax);
+
+    // Búsqueda de texto completo sobre la columna generada search_vector (solo PostgreSQL)
+    @Query(value = "SELECT p.* FROM products p, to_tsquery('spanish', :consulta) q " +
+            "WHERE p.search_vector @@ q " +
+            "ORDER BY ts_rank_cd(p.search_vector, q) DESC, p.id " +
+            "LIMIT :limite OFFSET :desplazamiento", nativeQuery = true)
+    List<Product> buscarTextoCompleto(@Param("consulta") String consulta,
+                                      @Param("limite") int limite,
+                                      @Param("desplazamiento") long desplazamiento);
+
+    // Alternativa para motores sin texto completo (H2)
+    List<Product> findByNombreContainingIgnoreCaseOrDescripcionContainingIgnoreCase(String nombre, String descripcion, Pageable pageable);
+
+    // Paginación por keyset sobre la clave primaria
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Lectura secuencial de todo el catálogo; debe consumirse dentro de una transacción y cerrarse
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllOrderById();
+
+    // Lecturas de stock por proyección (solo id y cantidad)
+    @Query("SELECT COALESCE(p.cantidad, 0) FROM Product p WHERE p.id = :id")
+    Optional<Integer> findCantidadById(@Param("id") Long id);
+
+    @Query("SELECT new com.products.product.dto.StockProducto(p.id, COALESCE(p.cantidad, 0)) FROM Product p WHERE p.id IN :ids")
+    List<StockProducto> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Solo toca la imagen, para no pisar cambios concurrentes del resto del producto
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.imagenUrl = :imagenUrl, p.estadoImagen = :estado, p.imagenPendienteDesde = NULL, " +
+            "p.version = p.version + 1 WHERE p.id = :id")
+    int actualizarImagen(@Param("id") Long id, @Param("imagenUrl") String imagenUrl, @Param("estado") EstadoImagen estado);
+
+    @Query("SELECT p.id FROM Product p WHERE p.estadoImagen = :pendiente " +
+            "AND (p.imagenPendienteDesde IS NULL OR p.imagenPendienteDesde < :limite)")
+    List<Long> findSubidasPendientesAntesDe(@Param("pendiente") EstadoImagen pendiente, @Param("limite") Instant limite);
+
+    // Solo si sigue en el estado esperado: no pisa el resultado que la subida registre mientras tanto
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.estadoImagen = :nuevo, p.imagenPendienteDesde = NULL, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.estadoImagen = :actual")
+    int cambiarEstadoImagen(@Param("id") Long id, @Param("actual") EstadoImagen actual, @Param("nuevo") EstadoImagen nuevo);
+
+    // Solo si la imagen de origen sigue siendo la actual: descarta miniaturas de una imagen ya reemplazada
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.miniatura160Url = :m160, p.miniatura320Url = :m320, p.miniatura640Url = :m640, " +
+            "p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.imagenUrl = :imagenUrl")
+    int actualizarMiniaturas(@Param("id") Long id, @Param("imagenUrl") String imagenUrl,
+                             @Param("m160") String m160, @Param("m320") String m320, @Param("m640") String m640);
+
+    // Productos que usan la URL como imagen o como miniatura
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.imagenUrl = :url OR p.miniatura160Url = :url " +
+            "OR p.miniatura320Url = :url OR p.miniatura640Url = :url")
+    long contarReferenciasImagen(@Param("url") String url);
+
+    // Stock: sentencias únicas y condicionales, sin leer la entidad antes. Todas incrementan
+    // la versión para que una edición concurrente de la entidad detecte el cambio
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.cantidad = p.cantidad - :cantidad, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.cantidad >= :cantidad")
+    int descontarStock(@Param("id") Long id, @Param("cantidad") Integer cantidad);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.cantidad = p.cantidad + :cantidad, p.version = p.version + 1 WHERE p.id = :id")
+    int incrementarStock(@Param("id") Long id, @Param("cantidad") Integer cantidad);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.cantidad = :cantidad, p.version = p.version + 1 WHERE p.id = :id")
+    int establecerStock(@Param("id") Long id, @Param("cantidad") Integer cantidad);
+
+    // Bloquea las filas en orden de id para que reservas concurrentes no se interbloqueen
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.products.product.repository;
+
+import com.products.product.dto.OrdenProductos;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filtros combinables para la búsqueda de productos. Cada método devuelve null cuando
+ * el filtro no aplica, de modo que se pueden encadenar con {@link Specification#and}.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> nombreContiene(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return null;
+        }
+        String patron = "%" + escaparLike(nombre.trim().toLowerCase()) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("nombre")), patron, '\\');
+    }
+
+    /**
+     * Filtro por nombre con texto completo de PostgreSQL, resuelto con el índice GIN de
+     * {@code to_tsvector('spanish', nombre)} en lugar de recorrer la tabla con LIKE
+     * @param consulta expresión tsquery ya saneada (ver ProductSearchService#construirConsulta)
+     */
+    public static Specification<Product> nombreCoincide(String consulta) {
+        if (consulta == null || consulta.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.isTrue(
+                cb.function(FuncionesTextoCompleto.NOMBRE_COINCIDE, Boolean.class, root.get("nombre"), cb.literal(consulta)));
+    }
+
+    public static Specification<Product> categoria(Categoria categoria) {
+        if (categoria == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("categoria"), categoria);
+    }
+
+    public static Specification<Product> precioDesde(Double precioMin) {
+        if (precioMin == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("precio"), precioMin);
+    }
+
+    public static Specification<Product> precioHasta(Double precioMax) {
+        if (precioMax == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("precio"), precioMax);
+    }
+
+    public static Specification<Product> conStock() {
+        return (root, query, cb) -> cb.greaterThan(root.get("cantidad"), 0);
+    }
+
+    public static Specification<Product> conPrecio() {
+        return (root, query, cb) -> cb.isNotNull(root.get("precio"));
+    }
+
+    /**
+     * Condición de keyset: filas estrictamente posteriores a la última devuelta según el orden indicado
+     * @param orden orden de la consulta
+     * @param precio precio de la última fila (ignorado si el orden es por id)
+     * @param id id de la última fila
+     */
+    public static Specification<Product> despuesDe(OrdenProductos orden, Double precio, Long id) {
+        if (id == null) {
+            return null;
+        }
+        return (root, query, cb) -> switch (orden) {
+            case ID -> cb.greaterThan(root.get("id"), id);
+            case PRECIO_ASC -> cb.or(
+                    cb.greaterThan(root.get("precio"), precio),
+                    cb.and(cb.equal(root.get("precio"), precio), cb.greaterThan(root.get("id"), id)));
+            case PRECIO_DESC -> cb.or(
+                    cb.lessThan(root.get("precio"), precio),
+                    cb.and(cb.equal(root.get("precio"), precio), cb.lessThan(root.get("id"), id)));
+        };
+    }
+
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
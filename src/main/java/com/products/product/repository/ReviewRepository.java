@@ -1,14 +1,47 @@
 package com.products.product.repository;
 
+import com.products.product.dto.ReviewProducto;
 import com.products.product.entity.Review;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByProductId(Long productId);
     List<Review> findByUserId(Long userId);
     boolean existsByUserIdAndProductId(Long userId, Long productId);
+
+    @Query("SELECT r.product.id FROM Review r WHERE r.userId = :userId AND r.product.id IN :productIds")
+    List<Long> findReviewedProductIds(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
+
+    // Proyección sin JOIN a products; Slice evita la consulta COUNT
+    @Query("SELECT new com.products.product.dto.ReviewProducto(r.id, r.userId, r.product.id, r.rating, r.comment, r.verifiedPurchase) " +
+            "FROM Review r WHERE r.product.id = :productId")
+    Slice<ReviewProducto> findVistaByProductId(@Param("productId") Long productId, Pageable pageable);
+
+    // Bloquea la reseña hasta el final de la transacción: dos ediciones o borrados simultáneos
+    // no pueden restar del agregado la misma valoración anterior
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> findByIdForUpdate(@Param("id") Long id);
+
+    // Devuelve las filas borradas: el agregado solo se descuenta si la reseña existía todavía
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Review r WHERE r.id = :id")
+    int eliminar(@Param("id") Long id);
+
+    // Histograma calculado sobre las reseñas, solo para productos sin agregado en product_ratings
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.product.id = :productId GROUP BY r.rating")
+    List<Object[]> contarPorRating(@Param("productId") Long productId);
 } 
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.products.product.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Recupera lo que dejan las subidas asíncronas que no terminan, porque su estado solo vive en
+ * memoria: tras un reinicio, los productos seguirían PENDIENTE y sus ficheros temporales en
+ * disco. La primera pasada se hace al arrancar.
+ */
+@Service
+public class BarridoSubidas {
+    private static final Logger logger = LoggerFactory.getLogger(BarridoSubidas.class);
+
+    // Temporales de ImageUploadService y MiniaturaService
+    private static final String TEMPORALES = "{producto-,miniaturas-}*.img";
+
+    private final ProductService productService;
+    private final Path directorioTemporal;
+    private final Clock clock;
+    private final Duration abandono;
+
+    @Autowired
+    public BarridoSubidas(ProductService productService,
+                          @Value("${imagenes.subida.abandono:30m}") Duration abandono) {
+        this(productService, Path.of(System.getProperty("java.io.tmpdir")), Clock.systemUTC(), abandono);
+    }
+
+    public BarridoSubidas(ProductService productService, Path directorioTemporal, Clock clock, Duration abandono) {
+        this.productService = productService;
+        this.directorioTemporal = directorioTemporal;
+        this.clock = clock;
+        this.abandono = abandono;
+    }
+
+    /**
+     * Marca como fallidas las subidas pendientes desde hace más de {@code imagenes.subida.abandono}
+     * y borra los temporales de imágenes más antiguos que ese mismo límite
+     * @return número de productos marcados con estadoImagen ERROR
+     */
+    @Scheduled(fixedDelayString = "${imagenes.subida.barrido-ms:300000}")
+    public int barrer() {
+        Instant limite = clock.instant().minus(abandono);
+        int fallidas = productService.fallarSubidasAbandonadas(limite);
+        if (fallidas > 0) {
+            logger.warn("{} subidas de imágenes pendientes desde antes de {} marcadas como fallidas", fallidas, limite);
+        }
+        borrarTemporales(limite);
+        return fallidas;
+    }
+
+    private void borrarTemporales(Instant limite) {
+        try (DirectoryStream<Path> temporales = Files.newDirectoryStream(directorioTemporal, TEMPORALES)) {
+            for (Path temporal : temporales) {
+                try {
+                    if (Files.getLastModifiedTime(temporal).toInstant().isBefore(limite)) {
+                        Files.deleteIfExists(temporal);
+                    }
+                } catch (IOException e) {
+                    logger.warn("No se pudo borrar el fichero temporal {}", temporal);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudieron revisar los temporales de {}: {}", directorioTemporal, e.getMessage());
+        }
+    }
+}
@@ -1,54 +1,90 @@
 package com.products.product.service;
 
+import com.products.product.config.MetricasConfig;
+import com.products.product.dto.CambioCarrito;
+import com.products.product.dto.LineaCarrito;
+import com.products.product.dto.OperacionCarrito;
+import com.products.product.dto.ResumenCarrito;
 import com.products.product.entity.CartItem;
 import com.products.product.entity.Product;
-import com.products.product.repository.CartItemRepository;
+import com.products.product.exception.StockInsuficienteException;
+import com.products.product.repository.CartStore;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed(MetricasConfig.SERVICIO)
 public class CartService {
 
-    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
     private final ProductService productService;
+    private final Counter conflictosStock;
 
-    public CartService(CartItemRepository cartItemRepository, ProductService productService) {
-        this.cartItemRepository = cartItemRepository;
+    public CartService(CartStore cartStore, ProductService productService, MeterRegistry meterRegistry) {
+        this.cartStore = cartStore;
         this.productService = productService;
+        this.conflictosStock = meterRegistry.counter(MetricasConfig.CONFLICTOS_STOCK, "operacion", "carrito");
     }
 
     public List<CartItem> getCartItems(String userId) {
-        return cartItemRepository.findByUserId(userId);
+        return cartStore.findByUserId(userId);
     }
 
+    /**
+     * Resumen del carrito con subtotales y total, obtenido con una sola consulta
+     * @param userId ID del usuario
+     * @return líneas del carrito con los datos del producto y totales
+     */
+    @Transactional(readOnly = true)
+    public ResumenCarrito getCartSummary(String userId) {
+        List<LineaCarrito> lineas = cartStore.findLineasByUserId(userId);
+        BigDecimal total = BigDecimal.ZERO;
+        int unidades = 0;
+        for (LineaCarrito linea : lineas) {
+            int quantity = linea.getQuantity() == null ? 0 : linea.getQuantity();
+            BigDecimal precio = linea.getPrecio() == null ? BigDecimal.ZERO : BigDecimal.valueOf(linea.getPrecio());
+            BigDecimal subtotal = precio.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP);
+            linea.setSubtotal(subtotal);
+            total = total.add(subtotal);
+            unidades += quantity;
+        }
+        return new ResumenCarrito(userId, lineas, unidades, total.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Agrega unidades de un producto al carrito. El producto se lee una vez (caché) y la
+     * línea se inserta o incrementa en una sola sentencia que valida la cantidad total
+     * (existente + nueva) contra el stock actual.
+     */
     @Transactional
     public CartItem addToCart(String userId, Long productId, Integer quantity) {
-        Product product = productService.getProductById(productId);
-        
-        // Verificar disponibilidad
-        if (!productService.verificarDisponibilidad(productId, quantity)) {
-            throw new RuntimeException("No hay suficiente stock disponible");
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor que cero");
         }
+        Product product = productService.getProductById(productId);
 
-        CartItem existingItem = cartItemRepository.findByUserIdAndProductId(userId, productId);
-        
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-            return cartItemRepository.save(existingItem);
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setUserId(userId);
-            newItem.setProduct(product);
-            newItem.setQuantity(quantity);
-            return cartItemRepository.save(newItem);
+        CartItem item = cartStore.agregar(userId, product, quantity);
+        if (item == null) {
+            conflictosStock.increment();
+            throw new StockInsuficienteException(productId);
         }
+        return item;
     }
 
     @Transactional
     public CartItem updateQuantity(String userId, Long productId, Integer quantity) {
-        CartItem cartItem = cartItemRepository.findByUserIdAndProductId(userId, productId);
+        CartItem cartItem = cartStore.findByUserIdAndProductId(userId, productId);
         if (cartItem == null) {
             throw new RuntimeException("Item no encontrado en el carrito");
         }
@@ -59,11 +95,74 @@ public class CartService {
         }
 
         cartItem.setQuantity(quantity);
-        return cartItemRepository.save(cartItem);
+        return cartStore.save(cartItem);
     }
 
     @Transactional
     public void removeFromCart(String userId, Long productId) {
-        cartItemRepository.deleteByUserIdAndProductId(userId, productId);
+        cartStore.deleteByUserIdAndProductId(userId, productId);
+    }
+
+    /**
+     * Aplica varios cambios al carrito en una transacción (por ejemplo, al fusionar el carrito
+     * de invitado). El stock de todos los productos se lee con una sola consulta y las
+     * escrituras se envían por lotes.
+     * @param userId ID del usuario
+     * @param cambios cambios a aplicar, en orden
+     * @return resumen del carrito resultante
+     * @throws StockInsuficienteException si alguna cantidad final supera el stock
+     */
+    @Transactional
+    public ResumenCarrito aplicarCambios(String userId, List<CambioCarrito> cambios) {
+        if (cambios == null || cambios.isEmpty()) {
+            throw new IllegalArgumentException("La lista de cambios no puede estar vacía");
+        }
+
+        // Las líneas leídas quedan bloqueadas: un agregado concurrente espera a este cambio
+        Map<Long, Integer> actuales = cartStore.bloquearCantidades(userId);
+        Map<Long, Integer> finales = new LinkedHashMap<>();
+        Set<Long> eliminados = new HashSet<>();
+        for (CambioCarrito cambio : cambios) {
+            Long productId = cambio.getProductId();
+            if (productId == null || cambio.getOp() == null) {
+                throw new IllegalArgumentException("Cambio de carrito incompleto");
+            }
+            if (cambio.getOp() == OperacionCarrito.ELIMINAR) {
+                finales.remove(productId);
+                eliminados.add(productId);
+                continue;
+            }
+            if (cambio.getCantidad() == null || cambio.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto " + productId);
+            }
+            int base = 0;
+            if (cambio.getOp() == OperacionCarrito.AGREGAR) {
+                base = finales.containsKey(productId) ? finales.get(productId)
+                        : eliminados.contains(productId) ? 0 : actuales.getOrDefault(productId, 0);
+            }
+            finales.put(productId, base + cambio.getCantidad());
+            eliminados.remove(productId);
+        }
+
+        Map<Long, Integer> stock = productService.obtenerStock(finales.keySet());
+        for (Map.Entry<Long, Integer> entry : finales.entrySet()) {
+            Integer disponible = stock.get(entry.getKey());
+            if (disponible == null) {
+                throw new RuntimeException("Producto no encontrado con ID: " + entry.getKey());
+            }
+            if (disponible < entry.getValue()) {
+                conflictosStock.increment();
+                throw new StockInsuficienteException(entry.getKey());
+            }
+        }
+
+        try {
+            cartStore.saveCantidades(userId, actuales, finales, eliminados);
+        } catch (StockInsuficienteException e) {
+            // Una línea nueva que otra petición creó a la vez ya no cabe en el stock
+            conflictosStock.increment();
+            throw e;
+        }
+        return getCartSummary(userId);
     }
-} 
\ No newline at end of file
+}
@@ -1,30 +1,60 @@
 package com.products.product.service;
 
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import com.products.product.config.MetricasConfig;
+import com.products.product.repository.ImageStore;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+/**
+ * Punto de entrada de las imágenes de producto. El almacenamiento concreto (Cloudinary o
+ * disco local) lo decide el {@link ImageStore} configurado.
+ */
 @Service
+@Timed(MetricasConfig.SERVICIO)
 public class CloudinaryService {
 
-    private final Cloudinary cloudinary;
+    private final ImageStore imageStore;
+    private final LimitadorSubidas limitador;
+    private final Counter bytesSubidos;
 
-    public CloudinaryService(Cloudinary cloudinary) {
-        this.cloudinary = cloudinary;
+    public CloudinaryService(ImageStore imageStore, LimitadorSubidas limitador, MeterRegistry meterRegistry) {
+        this.imageStore = imageStore;
+        this.limitador = limitador;
+        this.bytesSubidos = Counter.builder("imagenes.subida.bytes")
+                .description("Bytes de imagen guardados en el almacenamiento")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
+    // Los almacenamientos leen la imagen por streaming desde un File; con byte[] se cargaría
+    // entera en memoria. El multipart se mueve a un temporal propio (sin copia si ya está en disco)
     public String uploadImage(MultipartFile file) throws IOException {
-        Map uploadResult = cloudinary.uploader().upload(file.getBytes(), ObjectUtils.emptyMap());
-        return (String) uploadResult.get("url");
+        Path temporal = Files.createTempFile("subida-", ".img");
+        try {
+            file.transferTo(temporal);
+            return uploadImage(temporal.toFile());
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    // Sube desde un fichero en disco: el cliente HTTP lo envía por streaming sin cargarlo en memoria
+    public String uploadImage(File file) throws IOException {
+        long bytes = file.length();
+        String url = limitador.conHueco(() -> imageStore.guardar(file));
+        bytesSubidos.increment(bytes);
+        return url;
     }
 
     public void deleteImage(String imageUrl) throws IOException {
-        // Extraer el public_id de la URL
-        String publicId = imageUrl.substring(imageUrl.lastIndexOf("/") + 1, imageUrl.lastIndexOf("."));
-        cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+        imageStore.eliminar(imageUrl);
     }
-} 
\ No newline at end of file
+}
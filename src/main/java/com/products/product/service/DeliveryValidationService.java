@@ -1,14 +1,47 @@
 package com.products.product.service;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.products.product.config.MetricasConfig;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
+@Timed(MetricasConfig.SERVICIO)
 public class DeliveryValidationService {
 
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+    // Par (usuario, producto) usado como clave de caché
+    private record Entrega(Long userId, Long productId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Una entrega solo avanza hasta ENTREGADA, así que un resultado positivo no caduca
+    private final Cache<Entrega, Boolean> entregadas;
+    // Los negativos caducan pronto para que una entrega reciente se vea enseguida
+    private final Cache<Entrega, Boolean> noEntregadas;
+
+    public DeliveryValidationService(JdbcTemplate jdbcTemplate,
+                                     @Value("${entregas.cache.maximo:100000}") long maximo,
+                                     @Value("${entregas.cache.ttl-negativo:30s}") Duration ttlNegativo,
+                                     MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entregadas = Caffeine.newBuilder().maximumSize(maximo).recordStats().build();
+        this.noEntregadas = Caffeine.newBuilder().maximumSize(maximo).expireAfterWrite(ttlNegativo).recordStats().build();
+        monitorizar(meterRegistry, entregadas, "entregas");
+        monitorizar(meterRegistry, noEntregadas, "entregas-negativas");
+    }
 
     /**
      * Verifica si un usuario ha recibido un producto específico
@@ -17,13 +50,22 @@ public class DeliveryValidationService {
      * @return true si el usuario ha recibido el producto (estado = "ENTREGADA"), false en caso contrario
      */
     public boolean hasUserReceivedProduct(Long userId, Long productId) {
-        String sql = "SELECT COUNT(*) FROM deliveries WHERE user_id = ? AND product_id = ? AND estado = 'ENTREGADA'";
-        
+        Entrega entrega = new Entrega(userId, productId);
+        if (entregadas.getIfPresent(entrega) != null) {
+            return true;
+        }
+        if (noEntregadas.getIfPresent(entrega) != null) {
+            return false;
+        }
+
+        String sql = "SELECT EXISTS (SELECT 1 FROM deliveries WHERE user_id = ? AND product_id = ? AND estado = 'ENTREGADA')";
+
         try {
-            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId, productId);
-            return count != null && count > 0;
+            boolean recibido = Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, userId, productId));
+            recordar(entrega, recibido);
+            return recibido;
         } catch (Exception e) {
-            // Si hay algún error en la consulta, asumimos que no ha recibido el producto
+            // Si hay algún error en la consulta, asumimos que no ha recibido el producto (sin cachearlo)
             return false;
         }
     }
@@ -35,13 +77,81 @@ public class DeliveryValidationService {
      * @return true si existe al menos una entrega entregada
      */
     public boolean hasAnyDeliveredProduct(Long userId, Long productId) {
-        String sql = "SELECT COUNT(*) FROM deliveries WHERE user_id = ? AND product_id = ? AND estado = 'ENTREGADA'";
-        
+        return hasUserReceivedProduct(userId, productId);
+    }
+
+    /**
+     * Obtiene, de una lista de productos, los que el usuario ya ha recibido, con una sola consulta
+     * para los pares que no están en caché
+     * @param userId ID del usuario
+     * @param productIds IDs de los productos a consultar
+     * @return IDs de los productos con al menos una entrega en estado "ENTREGADA"
+     */
+    public Set<Long> productosRecibidos(Long userId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> recibidos = new HashSet<>();
+        Set<Long> pendientes = new HashSet<>();
+        for (Long productId : productIds) {
+            Entrega entrega = new Entrega(userId, productId);
+            if (entregadas.getIfPresent(entrega) != null) {
+                recibidos.add(productId);
+            } else if (noEntregadas.getIfPresent(entrega) == null) {
+                pendientes.add(productId);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return recibidos;
+        }
+
+        String marcadores = pendientes.stream().map(id -> "?").collect(Collectors.joining(", "));
+        String sql = "SELECT DISTINCT product_id FROM deliveries WHERE user_id = ? AND estado = 'ENTREGADA' " +
+                "AND product_id IN (" + marcadores + ")";
+        Object[] args = new Object[pendientes.size() + 1];
+        args[0] = userId;
+        int i = 1;
+        for (Long productId : pendientes) {
+            args[i++] = productId;
+        }
+
         try {
-            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId, productId);
-            return count != null && count > 0;
+            List<Long> encontrados = jdbcTemplate.queryForList(sql, Long.class, args);
+            for (Long productId : pendientes) {
+                recordar(new Entrega(userId, productId), encontrados.contains(productId));
+            }
+            recibidos.addAll(encontrados);
+            return recibidos;
         } catch (Exception e) {
-            return false;
+            // Mismo criterio que hasUserReceivedProduct: ante un error se considera no recibido
+            return recibidos;
+        }
+    }
+
+    /**
+     * Descarta lo cacheado para un par (usuario, producto), por ejemplo cuando el servicio
+     * de entregas marca una entrega como ENTREGADA y no se quiere esperar a que caduque el negativo
+     * @param userId ID del usuario
+     * @param productId ID del producto
+     */
+    public void invalidar(Long userId, Long productId) {
+        Entrega entrega = new Entrega(userId, productId);
+        entregadas.invalidate(entrega);
+        noEntregadas.invalidate(entrega);
+    }
+
+    // Aciertos y fallos en cache.gets junto a la caché de productos. Prometheus descarta las series
+    // de una métrica con etiquetas distintas a la primera, así que se repiten las que pone Spring Boot
+    private static void monitorizar(MeterRegistry meterRegistry, Cache<Entrega, Boolean> cache, String nombre) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, nombre, "cache.manager", "entregas", "name", nombre);
+    }
+
+    private void recordar(Entrega entrega, boolean recibido) {
+        if (recibido) {
+            entregadas.put(entrega, Boolean.TRUE);
+            noEntregadas.invalidate(entrega);
+        } else {
+            noEntregadas.put(entrega, Boolean.FALSE);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.products.product.service;
+
+import com.products.product.entity.ImageDeletion;
+import com.products.product.repository.ImageDeletionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Drena la tabla image_deletions: elimina las imágenes del almacenamiento por lotes y,
+ * si falla, reprograma la fila con espera exponencial. Las peticiones de borrado y
+ * actualización de productos no esperan nunca al proveedor de imágenes.
+ * <p>
+ * Cada lote se reclama en una transacción corta que aplaza su proximoIntento (concesión), de
+ * modo que las llamadas al proveedor se hacen sin transacción ni bloqueos abiertos. Si la
+ * instancia cae a mitad de lote, las filas vuelven a estar vencidas al expirar la concesión.
+ */
+@Service
+public class ImageDeletionWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDeletionWorker.class);
+
+    private final ImageDeletionRepository imageDeletionRepository;
+    private final CloudinaryService cloudinaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int tamanoLote;
+    private final Duration esperaInicial;
+    private final Duration esperaMaxima;
+    private final Duration concesion;
+
+    @Autowired
+    public ImageDeletionWorker(ImageDeletionRepository imageDeletionRepository,
+                               CloudinaryService cloudinaryService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${imagenes.eliminacion.lote:50}") int tamanoLote,
+                               @Value("${imagenes.eliminacion.espera-inicial:30s}") Duration esperaInicial,
+                               @Value("${imagenes.eliminacion.espera-maxima:6h}") Duration esperaMaxima,
+                               @Value("${imagenes.eliminacion.concesion:5m}") Duration concesion) {
+        this(imageDeletionRepository, cloudinaryService, new TransactionTemplate(transactionManager),
+                Clock.systemUTC(), tamanoLote, esperaInicial, esperaMaxima, concesion);
+    }
+
+    public ImageDeletionWorker(ImageDeletionRepository imageDeletionRepository,
+                               CloudinaryService cloudinaryService,
+                               TransactionTemplate transactionTemplate,
+                               Clock clock, int tamanoLote, Duration esperaInicial, Duration esperaMaxima,
+                               Duration concesion) {
+        this.imageDeletionRepository = imageDeletionRepository;
+        this.cloudinaryService = cloudinaryService;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.esperaInicial = esperaInicial;
+        this.esperaMaxima = esperaMaxima;
+        this.concesion = concesion;
+    }
+
+    /**
+     * Procesa lotes de eliminaciones vencidas hasta vaciar la cola
+     * @return número de imágenes eliminadas
+     */
+    @Scheduled(fixedDelayString = "${imagenes.eliminacion.intervalo-ms:10000}")
+    public int drenar() {
+        int eliminadas = 0;
+        while (true) {
+            List<ImageDeletion> lote = transactionTemplate.execute(estado -> reclamarLote());
+            int eliminadasLote = 0;
+            for (ImageDeletion eliminacion : lote) {
+                // Fuera de cualquier transacción: la llamada al proveedor puede tardar segundos
+                try {
+                    cloudinaryService.deleteImage(eliminacion.getUrl());
+                } catch (Exception e) {
+                    reprogramar(eliminacion, e);
+                    transactionTemplate.executeWithoutResult(estado -> imageDeletionRepository.save(eliminacion));
+                    continue;
+                }
+                transactionTemplate.executeWithoutResult(estado -> imageDeletionRepository.deleteById(eliminacion.getId()));
+                eliminadasLote++;
+            }
+            eliminadas += eliminadasLote;
+            // Cola vacía, o un lote entero fallido: el proveedor no responde, se espera a la siguiente pasada
+            if (lote.size() < tamanoLote || eliminadasLote == 0) {
+                return eliminadas;
+            }
+        }
+    }
+
+    // Bloquea las filas vencidas solo el tiempo de aplazarlas hasta el fin de la concesión
+    private List<ImageDeletion> reclamarLote() {
+        Instant ahora = clock.instant();
+        List<ImageDeletion> lote = imageDeletionRepository.findVencidasForUpdate(ahora, Limit.of(tamanoLote));
+        for (ImageDeletion eliminacion : lote) {
+            eliminacion.setProximoIntento(ahora.plus(concesion));
+        }
+        return lote;
+    }
+
+    private void reprogramar(ImageDeletion eliminacion, Exception error) {
+        int intentos = eliminacion.getIntentos() + 1;
+        Duration espera = esperaInicial.multipliedBy(1L << Math.min(intentos - 1, 20));
+        if (espera.compareTo(esperaMaxima) > 0) {
+            espera = esperaMaxima;
+        }
+        eliminacion.setIntentos(intentos);
+        eliminacion.setProximoIntento(clock.instant().plus(espera));
+        String mensaje = String.valueOf(error.getMessage());
+        eliminacion.setUltimoError(mensaje.length() > 1024 ? mensaje.substring(0, 1024) : mensaje);
+        logger.warn("No se pudo eliminar la imagen {} (intento {}), se reintenta en {}: {}",
+                eliminacion.getUrl(), intentos, espera, mensaje);
+    }
+}
@@ -0,0 +1,197 @@
+package com.products.product.service;
+
+import com.products.product.config.AsyncConfig;
+import com.products.product.entity.EstadoImagen;
+import com.products.product.entity.Product;
+import com.products.product.exception.SubidaRechazadaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sube las imágenes de producto en segundo plano. El producto se guarda de inmediato con
+ * estado PENDIENTE y la URL se asigna cuando termina la subida.
+ */
+@Service
+public class ImageUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploadService.class);
+
+    private final ProductService productService;
+    private final CloudinaryService cloudinaryService;
+    private final MiniaturaService miniaturaService;
+    private final Executor executor;
+    private final int intentos;
+    private final long esperaInicialMs;
+
+    public ImageUploadService(ProductService productService,
+                              CloudinaryService cloudinaryService,
+                              MiniaturaService miniaturaService,
+                              @Qualifier(AsyncConfig.IMAGENES_EXECUTOR) Executor executor,
+                              @Value("${imagenes.subida.intentos:3}") int intentos,
+                              @Value("${imagenes.subida.espera-ms:1000}") long esperaInicialMs) {
+        this.productService = productService;
+        this.cloudinaryService = cloudinaryService;
+        this.miniaturaService = miniaturaService;
+        this.executor = executor;
+        this.intentos = Math.max(1, intentos);
+        this.esperaInicialMs = esperaInicialMs;
+    }
+
+    /**
+     * Crea el producto y programa la subida de su imagen
+     * @param product producto a crear
+     * @param image imagen recibida en la petición
+     * @return producto creado, con estadoImagen PENDIENTE
+     * @throws SubidaRechazadaException si la cola de subidas está llena; el producto no se crea
+     */
+    public Product crearConImagen(Product product, MultipartFile image) throws IOException {
+        Path temporal = aTemporal(image);
+
+        product.setImagenUrl(null);
+        product.setEstadoImagen(EstadoImagen.PENDIENTE);
+        product.setImagenPendienteDesde(Instant.now());
+        Product creado;
+        try {
+            creado = productService.createProduct(product);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+
+        Long id = creado.getId();
+        try {
+            executor.execute(() -> subir(id, temporal));
+        } catch (RejectedExecutionException e) {
+            // Cola llena: se rechaza la petición entera en lugar de dejar el producto sin imagen
+            Files.deleteIfExists(temporal);
+            productService.deleteProduct(id);
+            throw new SubidaRechazadaException();
+        }
+        return creado;
+    }
+
+    /**
+     * Actualiza el producto con una imagen nueva, subida en la propia petición. La imagen
+     * anterior y sus miniaturas quedan encoladas para eliminarse en segundo plano.
+     * @param id ID del producto
+     * @param updates cambios del producto
+     * @param image imagen nueva
+     * @return producto actualizado; sus miniaturas se generan en segundo plano
+     * @throws com.products.product.exception.VersionRequeridaException si cambia la cantidad sin
+     *         indicar la versión; se comprueba antes de subir nada
+     */
+    public Product actualizarConImagen(Long id, Product updates, MultipartFile image) throws IOException {
+        ProductService.comprobarVersion(updates);
+        Path temporal = aTemporal(image);
+        try {
+            String url = cloudinaryService.uploadImage(temporal.toFile());
+            updates.setImagenUrl(url);
+            Product actualizado;
+            try {
+                actualizado = productService.updateProduct(id, updates);
+            } catch (RuntimeException e) {
+                // La imagen ya está subida y el producto no la referencia: se encola para eliminarla
+                productService.programarEliminacionImagen(url);
+                throw e;
+            }
+            miniaturaService.programar(id, url, temporal);
+            return actualizado;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    // El fichero temporal del multipart se borra al terminar la petición; se mueve a uno propio
+    private Path aTemporal(MultipartFile image) throws IOException {
+        Path temporal = Files.createTempFile("producto-", ".img");
+        try {
+            image.transferTo(temporal);
+            return temporal;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+    }
+
+    // Sube el fichero y guarda la URL, cada paso con sus propios reintentos: un fallo al guardar
+    // no vuelve a subir la imagen. Siempre borra el temporal
+    private void subir(Long productId, Path temporal) {
+        try {
+            String url = conReintentos("subir la imagen", productId, () -> cloudinaryService.uploadImage(temporal.toFile()));
+            if (url == null) {
+                productService.actualizarImagen(productId, null, EstadoImagen.ERROR);
+                return;
+            }
+            Boolean asignada = conReintentos("guardar la imagen", productId,
+                    () -> productService.actualizarImagen(productId, url, EstadoImagen.SUBIDA));
+            if (asignada == null) {
+                // Subida pero sin referenciar: se encola para eliminarla. El producto queda PENDIENTE
+                // y el barrido de subidas abandonadas lo marcará como ERROR
+                productService.programarEliminacionImagen(url);
+                return;
+            }
+            // Producto eliminado durante la subida: la imagen ya quedó encolada para eliminarse
+            if (asignada) {
+                programarMiniaturas(productId, url, temporal);
+            }
+        } catch (RuntimeException e) {
+            logger.error("No se pudo registrar el resultado de la subida del producto {}: {}", productId, e.getMessage(), e);
+        } finally {
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el fichero temporal {}", temporal);
+            }
+        }
+    }
+
+    // Reintenta con espera exponencial; null si se agotan los intentos o se interrumpe la espera
+    private <T> T conReintentos(String accion, Long productId, Callable<T> operacion) {
+        long espera = esperaInicialMs;
+        for (int intento = 1; intento <= intentos; intento++) {
+            try {
+                return operacion.call();
+            } catch (Exception e) {
+                logger.warn("Fallo al {} del producto {} (intento {}/{}): {}",
+                        accion, productId, intento, intentos, e.getMessage());
+                if (intento < intentos && !dormir(espera)) {
+                    break;
+                }
+                espera *= 2;
+            }
+        }
+        return null;
+    }
+
+    private void programarMiniaturas(Long productId, String url, Path temporal) {
+        try {
+            miniaturaService.programar(productId, url, temporal);
+        } catch (IOException e) {
+            logger.warn("No se pudieron programar las miniaturas del producto {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private boolean dormir(long ms) {
+        if (ms <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.products.product.service;
+
+import com.products.product.exception.SubidaRechazadaException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las subidas de imágenes simultáneas hacia el almacenamiento. Cuando no hay hueco
+ * libre se espera como máximo el tiempo configurado y después se rechaza la subida, en
+ * lugar de acumular conexiones y ficheros temporales sin límite.
+ */
+@Component
+public class LimitadorSubidas {
+
+    @FunctionalInterface
+    public interface Subida<T> {
+        T ejecutar() throws IOException;
+    }
+
+    private final Semaphore permisos;
+    private final long esperaMs;
+
+    public LimitadorSubidas(@Value("${imagenes.subida.simultaneas:8}") int simultaneas,
+                            @Value("${imagenes.subida.espera-hueco-ms:2000}") long esperaMs) {
+        this.permisos = new Semaphore(Math.max(1, simultaneas), true);
+        this.esperaMs = Math.max(0, esperaMs);
+    }
+
+    /**
+     * Ejecuta la subida ocupando uno de los huecos disponibles
+     * @param subida operación de subida
+     * @return resultado de la subida
+     * @throws SubidaRechazadaException si no queda hueco dentro del tiempo de espera
+     */
+    public <T> T conHueco(Subida<T> subida) throws IOException {
+        try {
+            if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SubidaRechazadaException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SubidaRechazadaException();
+        }
+        try {
+            return subida.ejecutar();
+        } finally {
+            permisos.release();
+        }
+    }
+
+    public int huecosLibres() {
+        return permisos.availablePermits();
+    }
+}
@@ -0,0 +1,212 @@
+package com.products.product.service;
+
+import com.products.product.config.AsyncConfig;
+import com.products.product.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Genera en segundo plano las miniaturas JPEG de la imagen de un producto (lado mayor de
+ * 640, 320 y 160 px), las guarda en el mismo almacenamiento que la original y las asigna
+ * al producto.
+ */
+@Service
+public class MiniaturaService {
+    private static final Logger logger = LoggerFactory.getLogger(MiniaturaService.class);
+
+    // De mayor a menor: cada variante se reduce a partir de la anterior
+    static final int[] TAMANOS = {640, 320, 160};
+
+    private final ProductService productService;
+    private final CloudinaryService cloudinaryService;
+    private final Executor executor;
+    private final float calidad;
+
+    public MiniaturaService(ProductService productService,
+                            CloudinaryService cloudinaryService,
+                            @Qualifier(AsyncConfig.MINIATURAS_EXECUTOR) Executor executor,
+                            @Value("${imagenes.miniaturas.calidad:0.82}") float calidad) {
+        this.productService = productService;
+        this.cloudinaryService = cloudinaryService;
+        this.executor = executor;
+        this.calidad = calidad;
+    }
+
+    /**
+     * Programa la generación de las miniaturas. Trabaja sobre una copia propia del fichero,
+     * así que el llamante puede borrar el suyo en cuanto vuelve.
+     * @param productId ID del producto
+     * @param imagenUrl URL de la imagen original ya guardada
+     * @param original fichero de la imagen original
+     */
+    public void programar(Long productId, String imagenUrl, Path original) throws IOException {
+        Path copia = Files.createTempFile("miniaturas-", ".img");
+        try {
+            Files.copy(original, copia, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(copia);
+            throw e;
+        }
+        try {
+            executor.execute(() -> generar(productId, imagenUrl, copia));
+        } catch (RejectedExecutionException e) {
+            // Cola llena: el producto se queda sin miniaturas antes que ocupar el hilo de la petición
+            logger.warn("Cola de miniaturas llena, se descartan las del producto {}", productId);
+            Files.deleteIfExists(copia);
+        }
+    }
+
+    /**
+     * URLs de las miniaturas asignadas al producto
+     * @param product producto
+     * @return URLs no nulas, de mayor a menor tamaño
+     */
+    public static List<String> urls(Product product) {
+        return Stream.of(product.getMiniatura640Url(), product.getMiniatura320Url(), product.getMiniatura160Url())
+                .filter(url -> url != null)
+                .toList();
+    }
+
+    private void generar(Long productId, String imagenUrl, Path original) {
+        List<String> guardadas = new ArrayList<>();
+        try {
+            BufferedImage imagen = leer(original, TAMANOS[0]);
+            if (imagen == null) {
+                logger.warn("Formato de imagen no soportado para miniaturas del producto {}", productId);
+                return;
+            }
+            Map<Integer, String> urls = new HashMap<>();
+            for (int tamano : TAMANOS) {
+                imagen = reducir(imagen, tamano);
+                String url = guardarJpeg(imagen);
+                guardadas.add(url);
+                urls.put(tamano, url);
+            }
+            if (!productService.actualizarMiniaturas(productId, imagenUrl, urls.get(160), urls.get(320), urls.get(640))) {
+                // El producto se eliminó o cambió de imagen mientras se generaban
+                eliminar(guardadas);
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudieron generar las miniaturas del producto {}: {}", productId, e.getMessage());
+            eliminar(guardadas);
+        } finally {
+            try {
+                Files.deleteIfExists(original);
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el fichero temporal {}", original);
+            }
+        }
+    }
+
+    private String guardarJpeg(BufferedImage imagen) throws IOException {
+        Path jpeg = Files.createTempFile("miniatura-", ".jpg");
+        try {
+            ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam param = escritor.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(calidad);
+            try (ImageOutputStream salida = ImageIO.createImageOutputStream(jpeg.toFile())) {
+                escritor.setOutput(salida);
+                escritor.write(null, new IIOImage(imagen, null, null), param);
+            } finally {
+                escritor.dispose();
+            }
+            return cloudinaryService.uploadImage(jpeg.toFile());
+        } finally {
+            Files.deleteIfExists(jpeg);
+        }
+    }
+
+    private void eliminar(List<String> urls) {
+        for (String url : urls) {
+            try {
+                cloudinaryService.deleteImage(url);
+            } catch (Exception e) {
+                logger.warn("No se pudo eliminar la miniatura {}: {}", url, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Decodifica la imagen submuestreando cuando es mucho mayor que la variante más grande,
+     * para no cargar en memoria el original a resolución completa
+     * @return imagen decodificada, o null si ImageIO no reconoce el formato
+     */
+    static BufferedImage leer(Path fichero, int lado) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(fichero.toFile())) {
+            Iterator<ImageReader> lectores = entrada == null ? null : ImageIO.getImageReaders(entrada);
+            if (lectores == null || !lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int mayor = Math.max(lector.getWidth(0), lector.getHeight(0));
+                int paso = Math.max(1, mayor / (lado * 2));
+                ImageReadParam param = lector.getDefaultReadParam();
+                param.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, param);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen para que su lado mayor no pase de {@code lado}, sin ampliarla.
+     * Se reduce a la mitad en cada paso: el bilineal pierde detalle en saltos grandes.
+     * @return imagen RGB (sin transparencia, sobre fondo blanco)
+     */
+    static BufferedImage reducir(BufferedImage origen, int lado) {
+        double escala = Math.min(1.0, (double) lado / Math.max(origen.getWidth(), origen.getHeight()));
+        int ancho = Math.max(1, (int) Math.round(origen.getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(origen.getHeight() * escala));
+
+        BufferedImage actual = origen;
+        do {
+            int w = Math.max(ancho, actual.getWidth() / 2);
+            int h = Math.max(alto, actual.getHeight() / 2);
+            BufferedImage paso = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = paso.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.drawImage(actual, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            actual = paso;
+        } while (actual.getWidth() > ancho || actual.getHeight() > alto);
+        return actual;
+    }
+}
@@ -0,0 +1,68 @@
+package com.products.product.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ProductExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductExportService.class);
+
+    // Cada cuántas filas se vacía el buffer hacia el cliente
+    private static final int FILAS_POR_FLUSH = 500;
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ProductExportService(ProductRepository productRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Escribe todo el catálogo en formato NDJSON (un producto por línea) leyendo la tabla
+     * con un cursor de solo avance, de modo que la memoria no depende del número de filas
+     * @param salida stream de destino; no se cierra al terminar
+     * @return número de productos exportados
+     */
+    @Transactional(readOnly = true)
+    public long exportarNdjson(OutputStream salida) throws IOException {
+        long filas = 0;
+        try (Stream<Product> productos = productRepository.streamAllOrderById();
+             SequenceWriter writer = objectMapper.writerFor(Product.class)
+                     .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .withRootValueSeparator("\n")
+                     .writeValues(salida)) {
+            Iterator<Product> iterator = productos.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                writer.write(product);
+                // Se libera la entidad del contexto de persistencia para no acumularla
+                entityManager.detach(product);
+                if (++filas % FILAS_POR_FLUSH == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        if (filas > 0) {
+            salida.write('\n');
+        }
+        salida.flush();
+        logger.info("Exportación NDJSON completada: {} productos", filas);
+        return filas;
+    }
+}
@@ -0,0 +1,117 @@
+package com.products.product.service;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.entity.Product;
+import com.products.product.repository.FuncionesTextoCompleto;
+import com.products.product.repository.ProductRepository;
+import com.products.product.util.Paginacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    // Máximo de términos que se trasladan a la consulta de texto completo
+    private static final int MAXIMO_TERMINOS = 8;
+
+    // Columna generada: PostgreSQL la mantiene sincronizada en cada INSERT/UPDATE de products
+    private static final String CREAR_COLUMNA_SQL =
+            "ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+            "setweight(to_tsvector('spanish', coalesce(nombre, '')), 'A') || " +
+            "setweight(to_tsvector('spanish', coalesce(descripcion, '')), 'B')) STORED";
+
+    private static final String CREAR_INDICE_SQL =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector)";
+
+    // Solo el nombre, para el filtro de buscarConFiltros (ProductSpecifications#nombreCoincide)
+    private static final String CREAR_INDICE_NOMBRE_SQL =
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_nombre_tsv ON products USING GIN (" +
+            FuncionesTextoCompleto.VECTOR_NOMBRE.formatted("nombre") + ")";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+
+    private volatile boolean textoCompletoDisponible = false;
+
+    public ProductSearchService(ProductRepository productRepository, JdbcTemplate jdbcTemplate, DatabasePlatform databasePlatform) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.databasePlatform = databasePlatform;
+    }
+
+    /**
+     * Crea (si no existen) la columna tsvector y los índices GIN una vez que Hibernate ya actualizó el esquema
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializarIndice() {
+        if (!databasePlatform.isPostgreSQL()) {
+            logger.info("Búsqueda de texto completo no disponible en este motor; se usará LIKE");
+            return;
+        }
+        try {
+            jdbcTemplate.execute(CREAR_COLUMNA_SQL);
+            jdbcTemplate.execute(CREAR_INDICE_SQL);
+            jdbcTemplate.execute(CREAR_INDICE_NOMBRE_SQL);
+            textoCompletoDisponible = true;
+            logger.info("Índice de texto completo de productos listo");
+        } catch (DataAccessException e) {
+            logger.error("No se pudo crear el índice de texto completo: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Busca productos por nombre y descripción ordenados por relevancia.
+     * Cada término se trata como prefijo ("lap" encuentra "laptop") y deben coincidir todos.
+     * @param texto texto introducido por el usuario
+     * @param page número de página (desde 0)
+     * @param size tamaño de página, limitado a {@link Paginacion#TAMANO_MAXIMO}
+     * @return productos de la página solicitada
+     */
+    public List<Product> buscar(String texto, Integer page, Integer size) {
+        String consulta = construirConsulta(texto);
+        if (consulta.isEmpty()) {
+            return List.of();
+        }
+        int limite = Paginacion.tamano(size);
+        int pagina = page == null || page < 0 ? 0 : page;
+
+        if (textoCompletoDisponible) {
+            // En long: pagina * limite desborda int con páginas muy altas
+            return productRepository.buscarTextoCompleto(consulta, limite, Math.multiplyExact((long) pagina, limite));
+        }
+        String termino = texto.trim();
+        return productRepository.findByNombreContainingIgnoreCaseOrDescripcionContainingIgnoreCase(
+                termino, termino, PageRequest.of(pagina, limite, Sort.by("id")));
+    }
+
+    /**
+     * Convierte el texto del usuario en una expresión tsquery segura: solo letras y dígitos,
+     * cada término con coincidencia por prefijo y unidos con AND
+     * @param texto texto introducido por el usuario
+     * @return expresión para to_tsquery, vacía si no hay términos
+     */
+    public static String construirConsulta(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return Arrays.stream(texto.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(termino -> !termino.isEmpty())
+                .limit(MAXIMO_TERMINOS)
+                .map(termino -> termino + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
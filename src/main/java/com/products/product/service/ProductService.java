@@ -1,52 +1,131 @@
 package com.products.product.service;
 
+import com.products.product.config.CacheConfig;
+import com.products.product.config.DatabasePlatform;
+import com.products.product.config.MetricasConfig;
+import com.products.product.dto.CursorPage;
+import com.products.product.dto.DisponibilidadProducto;
+import com.products.product.dto.FiltroProductos;
+import com.products.product.dto.OrdenProductos;
+import com.products.product.dto.ReservaStockItem;
+import com.products.product.dto.StockProducto;
 import com.products.product.entity.Product;
 import com.products.product.entity.Categoria;
+import com.products.product.entity.EstadoImagen;
+import com.products.product.entity.ImageDeletion;
+import com.products.product.exception.StockInsuficienteException;
+import com.products.product.exception.VersionRequeridaException;
+import com.products.product.repository.ImageDeletionRepository;
 import com.products.product.repository.ProductRepository;
+import com.products.product.repository.ProductSpecifications;
+import com.products.product.util.Paginacion;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
+@Timed(MetricasConfig.SERVICIO)
 public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
     private final ProductRepository productRepository;
+    private final ImageDeletionRepository imageDeletionRepository;
+    private final CacheManager cacheManager;
+    private final DatabasePlatform databasePlatform;
+    private final Counter conflictosDescuento;
+    private final Counter conflictosReserva;
+    private final TransactionTemplate transactionTemplate;
+    private final int intentosActualizacion;
+    private final long esperaConflictoMs;
+    private final Counter conflictosReintentados;
+    private final Counter conflictosAgotados;
+    private final Counter conflictosVersionCliente;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ImageDeletionRepository imageDeletionRepository,
+                          CacheManager cacheManager, MeterRegistry meterRegistry,
+                          PlatformTransactionManager transactionManager, DatabasePlatform databasePlatform,
+                          @Value("${productos.actualizacion.intentos:5}") int intentosActualizacion,
+                          @Value("${productos.actualizacion.espera-ms:5}") long esperaConflictoMs) {
         this.productRepository = productRepository;
+        this.imageDeletionRepository = imageDeletionRepository;
+        this.cacheManager = cacheManager;
+        this.databasePlatform = databasePlatform;
+        this.conflictosDescuento = meterRegistry.counter(MetricasConfig.CONFLICTOS_STOCK, "operacion", "descuento");
+        this.conflictosReserva = meterRegistry.counter(MetricasConfig.CONFLICTOS_STOCK, "operacion", "reserva");
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intentosActualizacion = Math.max(1, intentosActualizacion);
+        this.esperaConflictoMs = esperaConflictoMs;
+        this.conflictosReintentados = meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "reintento");
+        this.conflictosAgotados = meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "agotado");
+        this.conflictosVersionCliente = meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "version-cliente");
     }
 
+    @Transactional
     public Product createProduct(Product product) {
+        cancelarEliminaciones(product.getImagenUrl());
         return productRepository.save(product);
     }
 
+    /**
+     * Obtiene un producto, de la caché si está. La caché guarda una copia separada de la
+     * entidad gestionada y cada llamada recibe otra copia, así que modificar el resultado no
+     * altera lo que ven las demás peticiones.
+     * @param id ID del producto
+     * @return copia del producto
+     */
     public Product getProductById(Long id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        Cache productos = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        Product cacheado = productos == null ? null : productos.get(id, Product.class);
+        if (cacheado == null) {
+            cacheado = copia(productRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id)));
+            if (productos != null) {
+                productos.put(id, cacheado);
+            }
+        }
+        return copia(cacheado);
+    }
+
+    // Todos los campos son inmutables (String, números, enum, Instant): basta una copia superficial
+    private static Product copia(Product product) {
+        Product copia = new Product();
+        BeanUtils.copyProperties(product, copia);
+        return copia;
     }
 
     public List<Product> findAll() {
         try {
-            logger.info("Intentando obtener todos los productos");
             List<Product> products = productRepository.findAll();
-            logger.info("Productos encontrados: {}", products.size());
-            
             if (products == null) {
                 logger.warn("La lista de productos es null");
                 return new ArrayList<>();
             }
-            
-            if (products.isEmpty()) {
-                logger.warn("No se encontraron productos en la base de datos");
-            } else {
-                logger.info("Productos recuperados exitosamente");
-                products.forEach(p -> logger.debug("Producto: id={}, nombre={}", p.getId(), p.getNombre()));
-            }
-            
             return products;
         } catch (Exception e) {
             logger.error("Error al obtener productos: {}", e.getMessage(), e);
@@ -54,8 +133,131 @@ public class ProductService {
         }
     }
 
+    /**
+     * Obtiene una página de productos ordenados por id usando paginación por keyset
+     * @param cursor cursor opaco devuelto por la página anterior (null para la primera)
+     * @param size tamaño de página solicitado, limitado a {@link Paginacion#TAMANO_MAXIMO}
+     * @return productos de la página y cursor de la siguiente
+     */
+    public CursorPage<Product> findPage(String cursor, Integer size) {
+        int limite = Paginacion.tamano(size);
+        long despuesDe = Paginacion.decodeIdCursor(cursor);
+
+        // Se pide una fila extra para saber si existe una página siguiente sin hacer COUNT
+        List<Product> products = productRepository.findByIdGreaterThanOrderByIdAsc(despuesDe, Limit.of(limite + 1));
+        if (products.size() <= limite) {
+            return new CursorPage<>(products, null);
+        }
+
+        List<Product> pagina = new ArrayList<>(products.subList(0, limite));
+        return new CursorPage<>(pagina, Paginacion.encodeCursor(pagina.get(limite - 1).getId()));
+    }
+
+    /**
+     * Búsqueda combinada (nombre, categoría, rango de precio, solo con stock) resuelta en una
+     * única consulta con paginación por keyset sobre el orden solicitado.
+     * Al ordenar por precio se excluyen los productos sin precio. En PostgreSQL el nombre se
+     * busca por texto completo: cada término es un prefijo de una palabra del nombre.
+     * @param filtro filtros, orden, cursor y tamaño de página
+     * @return productos de la página y cursor de la siguiente
+     */
+    public CursorPage<Product> buscarConFiltros(FiltroProductos filtro) {
+        if (filtro.getPrecioMin() != null && filtro.getPrecioMax() != null
+                && filtro.getPrecioMin() > filtro.getPrecioMax()) {
+            throw new IllegalArgumentException("El precio mínimo no puede ser mayor que el máximo");
+        }
+        OrdenProductos orden = filtro.getOrden() == null ? OrdenProductos.ID : filtro.getOrden();
+        int limite = Paginacion.tamano(filtro.getSize());
+
+        Specification<Product> spec = Specification.where(filtroNombre(filtro.getNombre()))
+                .and(ProductSpecifications.categoria(filtro.getCategoria()))
+                .and(ProductSpecifications.precioDesde(filtro.getPrecioMin()))
+                .and(ProductSpecifications.precioHasta(filtro.getPrecioMax()))
+                .and(filtro.isSoloDisponibles() ? ProductSpecifications.conStock() : null)
+                .and(orden.porPrecio() ? ProductSpecifications.conPrecio() : null)
+                .and(condicionCursor(orden, filtro.getCursor()));
+
+        List<Product> products = productRepository.findFiltered(spec, orden.getSort(), limite + 1);
+        if (products.size() <= limite) {
+            return new CursorPage<>(products, null);
+        }
+
+        List<Product> pagina = new ArrayList<>(products.subList(0, limite));
+        Product ultimo = pagina.get(limite - 1);
+        String next = orden.porPrecio()
+                ? Paginacion.encodeCursor(ultimo.getPrecio(), ultimo.getId())
+                : Paginacion.encodeCursor(ultimo.getId());
+        return new CursorPage<>(pagina, next);
+    }
+
+    // En PostgreSQL por texto completo (índice GIN); LIKE en el resto de motores o si no queda ningún término
+    private Specification<Product> filtroNombre(String nombre) {
+        if (databasePlatform.isPostgreSQL()) {
+            String consulta = ProductSearchService.construirConsulta(nombre);
+            if (!consulta.isEmpty()) {
+                return ProductSpecifications.nombreCoincide(consulta);
+            }
+        }
+        return ProductSpecifications.nombreContiene(nombre);
+    }
+
+    private Specification<Product> condicionCursor(OrdenProductos orden, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        if (!orden.porPrecio()) {
+            return ProductSpecifications.despuesDe(orden, null, Paginacion.decodeIdCursor(cursor));
+        }
+        String[] valores = Paginacion.decodeCursor(cursor, 2);
+        try {
+            return ProductSpecifications.despuesDe(orden, Double.valueOf(valores[0]), Long.valueOf(valores[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Aplica los campos no nulos de {@code updates} con control optimista: si otra escritura
+     * cambia el producto entre la lectura y el UPDATE, se vuelve a leer y a aplicar en una
+     * transacción nueva, hasta {@code productos.actualizacion.intentos} veces. Cada intento
+     * es su propia transacción, así que no debe llamarse dentro de otra.
+     * La cantidad es un valor absoluto calculado sobre el stock que leyó el cliente, así que
+     * solo se acepta junto con la versión leída: sin ella pisaría los descuentos concurrentes.
+     * @param id ID del producto
+     * @param updates cambios; si trae version, debe coincidir con la actual y no se reintenta
+     * @return producto actualizado
+     * @throws VersionRequeridaException si cambia la cantidad sin indicar la versión
+     * @throws OptimisticLockingFailureException si la versión del cliente no es la actual o se
+     *         agotan los intentos
+     */
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id")
     public Product updateProduct(Long id, Product updates) {
+        comprobarVersion(updates);
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(status -> aplicarCambios(id, updates));
+            } catch (OptimisticLockingFailureException e) {
+                if (updates.getVersion() != null) {
+                    // El cliente editó sobre una versión concreta: reaplicar pisaría lo que no vio
+                    conflictosVersionCliente.increment();
+                    throw e;
+                }
+                if (intento >= intentosActualizacion) {
+                    conflictosAgotados.increment();
+                    logger.warn("Actualización del producto {} abandonada tras {} conflictos", id, intento);
+                    throw e;
+                }
+                conflictosReintentados.increment();
+                esperarTrasConflicto(intento);
+            }
+        }
+    }
+
+    private Product aplicarCambios(Long id, Product updates) {
         return productRepository.findById(id).map(existingProduct -> {
+            if (updates.getVersion() != null && !updates.getVersion().equals(existingProduct.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, id);
+            }
             if (updates.getNombre() != null) {
                 existingProduct.setNombre(updates.getNombre());
             }
@@ -71,18 +273,144 @@ public class ProductService {
             if (updates.getDescripcion() != null) {
                 existingProduct.setDescripcion(updates.getDescripcion());
             }
-            if (updates.getImagenUrl() != null) {
+            if (updates.getImagenUrl() != null && !updates.getImagenUrl().equals(existingProduct.getImagenUrl())) {
+                programarEliminacionImagenes(existingProduct);
+                cancelarEliminaciones(updates.getImagenUrl());
                 existingProduct.setImagenUrl(updates.getImagenUrl());
+                // Las miniaturas de la imagen anterior dejan de valer hasta generar las nuevas
+                existingProduct.setMiniatura160Url(null);
+                existingProduct.setMiniatura320Url(null);
+                existingProduct.setMiniatura640Url(null);
             }
             return productRepository.save(existingProduct);
         }).orElseThrow(() -> new RuntimeException("Producto no encontrado"));
     }
 
+    /**
+     * Rechaza los cambios de cantidad que llegan sin la versión leída por el cliente
+     * @param updates cambios del producto
+     * @throws VersionRequeridaException si cambia la cantidad sin indicar la versión
+     */
+    public static void comprobarVersion(Product updates) {
+        if (updates.getCantidad() != null && updates.getVersion() == null) {
+            throw new VersionRequeridaException("Para cambiar la cantidad hay que indicar la versión del producto leída");
+        }
+    }
+
+    // Espera aleatoria y creciente para que los escritores en conflicto no vuelvan a chocar a la vez
+    private void esperarTrasConflicto(int intento) {
+        long maximo = esperaConflictoMs * intento;
+        if (maximo <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maximo + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Actualización del producto interrumpida", e);
+        }
+    }
+
+    /**
+     * Registra el resultado de la subida asíncrona de la imagen. Si el producto se eliminó
+     * mientras tanto, la imagen subida se encola para eliminarla.
+     * @param id ID del producto
+     * @param imagenUrl URL de la imagen subida (null si falló)
+     * @param estado nuevo estado de la imagen
+     * @return false si el producto ya no existe
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id")
+    public boolean actualizarImagen(Long id, String imagenUrl, EstadoImagen estado) {
+        if (productRepository.actualizarImagen(id, imagenUrl, estado) > 0) {
+            cancelarEliminaciones(imagenUrl);
+            return true;
+        }
+        logger.warn("Producto {} eliminado antes de terminar la subida de su imagen", id);
+        if (imagenUrl != null) {
+            programarEliminacionImagen(imagenUrl);
+        }
+        return false;
+    }
+
+    /**
+     * Marca como fallidas las subidas de imagen que siguen pendientes desde antes del límite:
+     * su tarea se perdió en un reinicio o nunca terminó
+     * @param limite inicio más antiguo de una subida que todavía puede estar en curso
+     * @return número de productos marcados con estadoImagen ERROR
+     */
+    @Transactional
+    public int fallarSubidasAbandonadas(Instant limite) {
+        Cache productos = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        int fallidas = 0;
+        for (Long id : productRepository.findSubidasPendientesAntesDe(EstadoImagen.PENDIENTE, limite)) {
+            if (productRepository.cambiarEstadoImagen(id, EstadoImagen.PENDIENTE, EstadoImagen.ERROR) > 0) {
+                fallidas++;
+                if (productos != null) {
+                    productos.evict(id);
+                }
+            }
+        }
+        return fallidas;
+    }
+
+    /**
+     * Encola para eliminar una imagen ya subida que ningún producto llegó a referenciar
+     * @param imagenUrl URL de la imagen
+     */
+    @Transactional
+    public void programarEliminacionImagen(String imagenUrl) {
+        imageDeletionRepository.save(new ImageDeletion(imagenUrl, Instant.now()));
+    }
+
+    /**
+     * Asigna las miniaturas generadas a partir de una imagen
+     * @param id ID del producto
+     * @param imagenUrl imagen de la que se generaron
+     * @return false si el producto ya no existe o su imagen cambió mientras se generaban
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id")
+    public boolean actualizarMiniaturas(Long id, String imagenUrl, String miniatura160Url,
+                                        String miniatura320Url, String miniatura640Url) {
+        if (productRepository.actualizarMiniaturas(id, imagenUrl, miniatura160Url, miniatura320Url, miniatura640Url) == 0) {
+            return false;
+        }
+        cancelarEliminaciones(miniatura160Url, miniatura320Url, miniatura640Url);
+        return true;
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id")
     public void deleteProduct(Long id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
-        } else {
-            throw new RuntimeException("Producto no encontrado con ID: " + id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        productRepository.delete(product);
+        programarEliminacionImagenes(product);
+    }
+
+    // Encola la imagen y las miniaturas del producto en la misma transacción que deja de usarlas
+    private void programarEliminacionImagenes(Product product) {
+        List<ImageDeletion> eliminaciones = new ArrayList<>();
+        Instant ahora = Instant.now();
+        if (product.getImagenUrl() != null) {
+            eliminaciones.add(new ImageDeletion(product.getImagenUrl(), ahora));
+        }
+        for (String miniatura : MiniaturaService.urls(product)) {
+            eliminaciones.add(new ImageDeletion(miniatura, ahora));
+        }
+        if (!eliminaciones.isEmpty()) {
+            imageDeletionRepository.saveAll(eliminaciones);
+        }
+    }
+
+    // Una URL que vuelve a asignarse deja de estar pendiente de eliminar, en la misma transacción
+    // que la asigna: el almacenamiento local deduplica por contenido y puede devolver el fichero
+    // de una imagen que otro producto acaba de soltar
+    private void cancelarEliminaciones(String... urls) {
+        List<String> asignadas = Arrays.stream(urls).filter(Objects::nonNull).toList();
+        if (!asignadas.isEmpty()) {
+            imageDeletionRepository.deleteByUrlIn(asignadas);
         }
     }
 
@@ -99,33 +427,146 @@ public class ProductService {
         return productRepository.findByPrecioBetween(precioMin, precioMax);
     }
 
-    @Transactional
+    /**
+     * Obtiene el stock actual de un producto leyendo solo su cantidad
+     * @param id ID del producto
+     * @return unidades disponibles
+     */
+    public Integer obtenerStock(Long id) {
+        return productRepository.findCantidadById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+    }
+
+    /**
+     * Obtiene el stock actual de varios productos con una sola consulta
+     * @param ids IDs de los productos
+     * @return stock por id; los productos inexistentes no aparecen en el mapa
+     */
+    public Map<Long, Integer> obtenerStock(Collection<Long> ids) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return stock;
+        }
+        for (StockProducto fila : productRepository.findStockByIdIn(ids)) {
+            stock.put(fila.getProductId(), fila.getCantidad());
+        }
+        return stock;
+    }
+
     public boolean verificarDisponibilidad(Long id, Integer cantidadSolicitada) {
-        Product product = getProductById(id);
-        return product.getCantidad() >= cantidadSolicitada;
+        return obtenerStock(id) >= cantidadSolicitada;
+    }
+
+    public DisponibilidadProducto consultarDisponibilidad(Long id, Integer cantidadSolicitada) {
+        Integer stockActual = obtenerStock(id);
+        return new DisponibilidadProducto(id, cantidadSolicitada, stockActual, stockActual >= cantidadSolicitada);
+    }
+
+    /**
+     * Verifica la disponibilidad de varios productos (por ejemplo, un carrito completo) con una sola consulta
+     * @param ids IDs de los productos
+     * @param cantidades cantidad solicitada de cada producto, en el mismo orden que los ids
+     * @return disponibilidad de cada producto en el orden solicitado; un id repetido aparece una vez,
+     *         con la suma de sus cantidades
+     */
+    public List<DisponibilidadProducto> verificarDisponibilidad(List<Long> ids, List<Integer> cantidades) {
+        if (ids == null || cantidades == null || ids.size() != cantidades.size()) {
+            throw new IllegalArgumentException("Debe indicarse una cantidad por cada producto");
+        }
+        // Como en reservarStock: un id repetido se comprueba con la suma de sus cantidades
+        Map<Long, Integer> solicitado = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (cantidades.get(i) == null) {
+                throw new IllegalArgumentException("Debe indicarse una cantidad por cada producto");
+            }
+            solicitado.merge(ids.get(i), cantidades.get(i), Integer::sum);
+        }
+        Map<Long, Integer> stock = obtenerStock(new ArrayList<>(solicitado.keySet()));
+        List<DisponibilidadProducto> resultado = new ArrayList<>(solicitado.size());
+        solicitado.forEach((id, cantidad) -> {
+            Integer stockActual = stock.get(id);
+            boolean disponible = stockActual != null && stockActual >= cantidad;
+            resultado.add(new DisponibilidadProducto(id, cantidad, stockActual, disponible));
+        });
+        return resultado;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id")
     public void actualizarStock(Long id, Integer cantidad) {
-        Product product = getProductById(id);
         // Si la cantidad es negativa, significa que queremos restar stock
         if (cantidad < 0) {
-            if (product.getCantidad() < Math.abs(cantidad)) {
-                throw new RuntimeException("No hay suficiente stock disponible");
+            // UPDATE condicional: la base de datos garantiza que el stock nunca queda negativo
+            if (productRepository.descontarStock(id, Math.abs(cantidad)) == 0) {
+                // Solo en el camino de error se distingue entre producto inexistente y stock insuficiente
+                if (!productRepository.existsById(id)) {
+                    throw new RuntimeException("Producto no encontrado con ID: " + id);
+                }
+                conflictosDescuento.increment();
+                throw new StockInsuficienteException(id);
             }
-            product.setCantidad(product.getCantidad() + cantidad);
         } else {
             // Si la cantidad es positiva, significa que queremos establecer un nuevo valor de stock
-            product.setCantidad(cantidad);
+            if (productRepository.establecerStock(id, cantidad) == 0) {
+                throw new RuntimeException("Producto no encontrado con ID: " + id);
+            }
         }
-        productRepository.save(product);
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTOS, key = "#id")
     public void revertirStock(Long id, Integer cantidad) {
-        Product product = getProductById(id);
-        product.setCantidad(product.getCantidad() + cantidad);
-        productRepository.save(product);
+        if (productRepository.incrementarStock(id, cantidad) == 0) {
+            throw new RuntimeException("Producto no encontrado con ID: " + id);
+        }
+    }
+
+    /**
+     * Reserva el stock de varios productos en una sola transacción: o se descuentan todos o ninguno
+     * @param items productos y cantidades a reservar; los ids repetidos se suman
+     * @return stock resultante de cada producto, ordenado por id
+     * @throws StockInsuficienteException si algún producto no tiene stock suficiente
+     */
+    @Transactional
+    public Map<Long, Integer> reservarStock(List<ReservaStockItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("La reserva no contiene productos");
+        }
+
+        // TreeMap: las filas se bloquean siempre en el mismo orden (id ascendente)
+        Map<Long, Integer> solicitado = new TreeMap<>();
+        for (ReservaStockItem item : items) {
+            if (item.getProductId() == null || item.getCantidad() == null || item.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto " + item.getProductId());
+            }
+            solicitado.merge(item.getProductId(), item.getCantidad(), Integer::sum);
+        }
+
+        List<Product> products = productRepository.findAllByIdForUpdate(solicitado.keySet());
+        if (products.size() != solicitado.size()) {
+            products.forEach(p -> solicitado.remove(p.getId()));
+            throw new RuntimeException("Producto no encontrado con ID: " + solicitado.keySet().iterator().next());
+        }
+
+        // Se valida todo antes de modificar nada
+        for (Product product : products) {
+            if (product.getCantidad() < solicitado.get(product.getId())) {
+                conflictosReserva.increment();
+                throw new StockInsuficienteException(product.getId());
+            }
+        }
+
+        // Las entidades quedan gestionadas: Hibernate envía los UPDATE en lote al confirmar
+        Map<Long, Integer> stockActual = new LinkedHashMap<>();
+        Cache productos = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        for (Product product : products) {
+            product.setCantidad(product.getCantidad() - solicitado.get(product.getId()));
+            stockActual.put(product.getId(), product.getCantidad());
+            if (productos != null) {
+                productos.evict(product.getId());
+            }
+        }
+        return stockActual;
     }
 
     @Transactional
@@ -1,16 +1,32 @@
 package com.products.product.service;
 
+import com.products.product.config.DatabasePlatform;
+import com.products.product.config.MetricasConfig;
+import com.products.product.dto.OrdenReviews;
+import com.products.product.dto.ResumenValoraciones;
+import com.products.product.dto.ReviewProducto;
 import com.products.product.entity.Product;
 import com.products.product.entity.Review;
+import com.products.product.repository.ProductRatingRepository;
 import com.products.product.repository.ProductRepository;
 import com.products.product.repository.ReviewRepository;
+import com.products.product.util.Paginacion;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed(MetricasConfig.SERVICIO)
 public class ReviewService {
 
     @Autowired
@@ -22,6 +38,12 @@ public class ReviewService {
     @Autowired
     private DeliveryValidationService deliveryValidationService;
 
+    @Autowired
+    private ProductRatingRepository productRatingRepository;
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
     @Transactional
     public Review createReview(Review review) {
         // Validar que el rating esté entre 1 y 5
@@ -54,29 +76,65 @@ public class ReviewService {
         // Marcar como compra verificada ya que pasó la validación de entrega
         review.setVerifiedPurchase(true);
 
-        return reviewRepository.save(review);
+        inicializarResumen(product.getId());
+        Review saved = reviewRepository.save(review);
+        productRatingRepository.aplicarCambio(product.getId(), 0, saved.getRating());
+        return saved;
     }
 
     public List<Review> getProductReviews(Long productId) {
         return reviewRepository.findByProductId(productId);
     }
 
+    /**
+     * Página de reseñas de un producto como proyección ligera, sin el producto embebido
+     * @param productId ID del producto
+     * @param page número de página (desde 0)
+     * @param size tamaño de página solicitado
+     * @param orden criterio de ordenación (RECIENTES por defecto)
+     * @return página de reseñas e indicador de si hay más
+     */
+    @Transactional(readOnly = true)
+    public Slice<ReviewProducto> getProductReviewsPage(Long productId, Integer page, Integer size, OrdenReviews orden) {
+        int pagina = page == null || page < 0 ? 0 : page;
+        OrdenReviews criterio = orden == null ? OrdenReviews.RECIENTES : orden;
+        PageRequest pageRequest = PageRequest.of(pagina, Paginacion.tamano(size), criterio.getSort());
+        return reviewRepository.findVistaByProductId(productId, pageRequest);
+    }
+
     public List<Review> getUserReviews(Long userId) {
         return reviewRepository.findByUserId(userId);
     }
 
+    @Transactional
     public void deleteReview(Long reviewId) {
-        reviewRepository.deleteById(reviewId);
+        Review review = reviewRepository.findByIdForUpdate(reviewId).orElse(null);
+        if (review == null) {
+            return;
+        }
+        Long productId = review.getProduct().getId();
+        Integer rating = review.getRating();
+        inicializarResumen(productId);
+        if (reviewRepository.eliminar(reviewId) == 1) {
+            productRatingRepository.aplicarCambio(productId, rating, 0);
+        }
     }
 
+    @Transactional
     public Review updateReview(Long reviewId, Review updatedReview) {
-        Review existingReview = reviewRepository.findById(reviewId)
+        Review existingReview = reviewRepository.findByIdForUpdate(reviewId)
                 .orElseThrow(() -> new RuntimeException("Review not found"));
 
         if (updatedReview.getRating() != null) {
             if (updatedReview.getRating() < 1 || updatedReview.getRating() > 5) {
                 throw new IllegalArgumentException("Rating must be between 1 and 5");
             }
+            Integer anterior = existingReview.getRating();
+            if (!updatedReview.getRating().equals(anterior)) {
+                Long productId = existingReview.getProduct().getId();
+                inicializarResumen(productId);
+                productRatingRepository.aplicarCambio(productId, anterior, updatedReview.getRating());
+            }
             existingReview.setRating(updatedReview.getRating());
         }
 
@@ -90,6 +148,55 @@ public class ReviewService {
         return reviewRepository.save(existingReview);
     }
 
+    /**
+     * Resumen de valoraciones de un producto leído del agregado precalculado
+     * @param productId ID del producto
+     * @return número de reseñas, promedio e histograma por estrellas
+     */
+    @Transactional(readOnly = true)
+    public ResumenValoraciones getRatingSummary(Long productId) {
+        long[] estrellas = new long[6];
+        productRatingRepository.findById(productId).ifPresentOrElse(rating -> {
+            estrellas[1] = rating.getStars1();
+            estrellas[2] = rating.getStars2();
+            estrellas[3] = rating.getStars3();
+            estrellas[4] = rating.getStars4();
+            estrellas[5] = rating.getStars5();
+        }, () -> {
+            // Producto sin agregado todavía: se calcula una vez sobre las reseñas existentes
+            for (Object[] fila : reviewRepository.contarPorRating(productId)) {
+                estrellas[((Number) fila[0]).intValue()] = ((Number) fila[1]).longValue();
+            }
+        });
+
+        Map<Integer, Long> histograma = new LinkedHashMap<>();
+        long count = 0;
+        long sum = 0;
+        for (int estrella = 1; estrella <= 5; estrella++) {
+            histograma.put(estrella, estrellas[estrella]);
+            count += estrellas[estrella];
+            sum += estrella * estrellas[estrella];
+        }
+        double promedio = count == 0 ? 0 : (double) sum / count;
+        return new ResumenValoraciones(productId, count, promedio, histograma);
+    }
+
+    // Garantiza que exista la fila de product_ratings antes de modificar reseñas del producto.
+    // Debe llamarse antes del cambio para que la siembra no lo cuente dos veces.
+    private void inicializarResumen(Long productId) {
+        // La siembra recorre todas las reseñas del producto: solo se lanza si aún no hay fila
+        if (productRatingRepository.existsById(productId)) {
+            return;
+        }
+        if (databasePlatform.isPostgreSQL()) {
+            productRatingRepository.inicializarPostgres(productId);
+        } else {
+            // Sin ON CONFLICT, dos siembras simultáneas insertarían la misma fila
+            productRatingRepository.bloquearProducto(productId);
+            productRatingRepository.inicializarEstandar(productId);
+        }
+    }
+
     /**
      * Verifica si un usuario puede dejar una reseña para un producto específico
      * @param userId ID del usuario
@@ -105,4 +212,29 @@ public class ReviewService {
         // Verificar que haya recibido el producto
         return deliveryValidationService.hasUserReceivedProduct(userId, productId);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Versión por lotes de {@link #canUserReviewProduct}: una consulta a reviews y, para los
+     * productos aún sin reseña, una a deliveries
+     * @param userId ID del usuario
+     * @param productIds IDs de los productos
+     * @return para cada producto (en el orden recibido), si el usuario puede reseñarlo
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Boolean> canUserReviewProducts(Long userId, List<Long> productIds) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        Map<Long, Boolean> resultado = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return resultado;
+        }
+
+        Set<Long> pendientes = new HashSet<>(ids);
+        pendientes.removeAll(reviewRepository.findReviewedProductIds(userId, ids));
+        Set<Long> recibidos = deliveryValidationService.productosRecibidos(userId, pendientes);
+
+        for (Long productId : ids) {
+            resultado.put(productId, recibidos.contains(productId));
+        }
+        return resultado;
+    }
+}
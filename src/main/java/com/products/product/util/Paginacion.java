@@ -0,0 +1,79 @@
+package com.products.product.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades compartidas por los listados paginados: límites de tamaño de página
+ * y codificación de los cursores opacos usados en la paginación por keyset.
+ */
+public final class Paginacion {
+
+    public static final int TAMANO_DEFECTO = 20;
+    public static final int TAMANO_MAXIMO = 100;
+
+    private static final String SEPARADOR = "|";
+
+    private Paginacion() {
+    }
+
+    /**
+     * Normaliza el tamaño de página solicitado por el cliente
+     * @param size tamaño solicitado (puede ser null)
+     * @return tamaño entre 1 y {@link #TAMANO_MAXIMO}
+     */
+    public static int tamano(Integer size) {
+        if (size == null || size <= 0) {
+            return TAMANO_DEFECTO;
+        }
+        return Math.min(size, TAMANO_MAXIMO);
+    }
+
+    /**
+     * Genera un cursor opaco a partir de los valores de la última fila devuelta
+     * @param valores valores de las columnas de ordenación, en orden
+     * @return cursor en Base64 URL-safe
+     */
+    public static String encodeCursor(Object... valores) {
+        String plano = String.join(SEPARADOR, Arrays.stream(valores).map(String::valueOf).toList());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor generado por {@link #encodeCursor(Object...)}
+     * @param cursor cursor recibido del cliente
+     * @param partes número de valores que debe contener
+     * @return valores del cursor como texto
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public static String[] decodeCursor(String cursor, int partes) {
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] valores = plano.split(Pattern.quote(SEPARADOR), -1);
+            if (valores.length != partes) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return valores;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Decodifica un cursor de un único id
+     * @param cursor cursor recibido del cliente (null o vacío para la primera página)
+     * @return id a partir del cual continuar, 0 si es la primera página
+     */
+    public static long decodeIdCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decodeCursor(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -1,24 +1,33 @@
 package com.products.product.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.products.product.config.SecurityConfig;
+import com.products.product.entity.EstadoImagen;
 import com.products.product.entity.Product;
-import com.products.product.service.CloudinaryService;
+import com.products.product.service.ImageUploadService;
+import com.products.product.service.ProductSearchService;
 import com.products.product.service.ProductService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.multipart.MultipartFile;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ProductController.class)
+@Import(SecurityConfig.class)
 public class ProductControllerTest {
 
     @Autowired
@@ -28,7 +37,10 @@ public class ProductControllerTest {
     private ProductService productService;
 
     @MockBean
-    private CloudinaryService cloudinaryService;
+    private ProductSearchService productSearchService;
+
+    @MockBean
+    private ImageUploadService imageUploadService;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -53,19 +65,44 @@ public class ProductControllerTest {
                 "test image content".getBytes()
         );
 
-        when(cloudinaryService.uploadImage(any())).thenReturn("http://fake-url.com/image.jpg");
-        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+        // La imagen se sube en segundo plano: el producto vuelve sin URL y con la subida pendiente
+        when(imageUploadService.crearConImagen(any(Product.class), any(MultipartFile.class))).thenAnswer(invocation -> {
             Product p = invocation.getArgument(0);
-            p.setImagenUrl("http://fake-url.com/image.jpg");
+            p.setEstadoImagen(EstadoImagen.PENDIENTE);
             return p;
         });
 
-        mockMvc.perform(multipart("/api/product/crear")
+        mockMvc.perform(multipart("/api/productos/crear")
                         .file(productJson)
                         .file(image))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.nombre").value("Test Product"))
-                .andExpect(jsonPath("$.imagenUrl").value("http://fake-url.com/image.jpg"));
+                .andExpect(jsonPath("$.estadoImagen").value("PENDIENTE"))
+                .andExpect(jsonPath("$.imagenUrl").doesNotExist());
+        verify(productService, never()).createProduct(any(Product.class));
+    }
+
+    @Test
+    void createProduct_shouldIgnoreServerManagedImageFields() throws Exception {
+        // Las miniaturas acaban en la cola de eliminación: un cliente no puede elegirlas
+        String json = "{\"nombre\":\"Test Product\",\"estadoImagen\":\"SUBIDA\","
+                + "\"miniatura160Url\":\"http://res.cloudinary.com/demo/image/upload/v1/ajena.jpg\","
+                + "\"miniatura320Url\":\"http://res.cloudinary.com/demo/image/upload/v1/ajena.jpg\","
+                + "\"miniatura640Url\":\"http://res.cloudinary.com/demo/image/upload/v1/ajena.jpg\"}";
+        MockMultipartFile productJson = new MockMultipartFile(
+                "product",
+                "",
+                MediaType.APPLICATION_JSON_VALUE,
+                json.getBytes()
+        );
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(multipart("/api/productos/crear")
+                        .file(productJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estadoImagen").value("SIN_IMAGEN"));
+        verify(productService).createProduct(argThat(p -> p.getMiniatura160Url() == null
+                && p.getMiniatura320Url() == null && p.getMiniatura640Url() == null));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.products.product.controller;
+
+import com.products.product.config.SecurityConfig;
+import com.products.product.service.DeliveryValidationService;
+import com.products.product.service.ReviewService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = ReviewController.class, properties = "seguridad.token-interno=secreto")
+@Import(SecurityConfig.class)
+public class ReviewControllerSeguridadTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReviewService reviewService;
+
+    @MockBean
+    private DeliveryValidationService deliveryValidationService;
+
+    @Test
+    void invalidarEntrega_shouldRejectCallsWithoutInternalToken() throws Exception {
+        mockMvc.perform(post("/api/reviews/entregas/invalidar").param("userId", "1").param("productId", "2"))
+                .andExpect(status().isForbidden());
+
+        verify(deliveryValidationService, never()).invalidar(anyLong(), anyLong());
+    }
+
+    @Test
+    void invalidarEntrega_shouldRejectWrongInternalToken() throws Exception {
+        mockMvc.perform(post("/api/reviews/entregas/invalidar").param("userId", "1").param("productId", "2")
+                        .header("X-Token-Interno", "secretO"))
+                .andExpect(status().isForbidden());
+
+        verify(deliveryValidationService, never()).invalidar(anyLong(), anyLong());
+    }
+
+    @Test
+    void invalidarEntrega_shouldInvalidateWithInternalToken() throws Exception {
+        mockMvc.perform(post("/api/reviews/entregas/invalidar").param("userId", "1").param("productId", "2")
+                        .header("X-Token-Interno", "secreto"))
+                .andExpect(status().isNoContent());
+
+        verify(deliveryValidationService).invalidar(1L, 2L);
+    }
+}
@@ -0,0 +1,77 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.service.BarridoSubidas;
+import com.products.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BarridoSubidasTest {
+
+    private static final Instant AHORA = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Mock
+    private ProductService productService;
+
+    @TempDir
+    Path directorio;
+
+    private BarridoSubidas barrido;
+
+    @BeforeEach
+    void setUp() {
+        barrido = new BarridoSubidas(productService, directorio, Clock.fixed(AHORA, ZoneOffset.UTC), Duration.ofMinutes(30));
+    }
+
+    @Test
+    void barrer_ShouldFailUploadsPendingBeforeTheLimit() {
+        // Arrange
+        when(productService.fallarSubidasAbandonadas(AHORA.minus(Duration.ofMinutes(30)))).thenReturn(2);
+
+        // Act
+        int fallidas = barrido.barrer();
+
+        // Assert
+        assertEquals(2, fallidas);
+    }
+
+    @Test
+    void barrer_ShouldDeleteOnlyOldUploadTempFiles() throws IOException {
+        // Arrange
+        Path huerfano = temporal("producto-1.img", AHORA.minus(Duration.ofHours(2)));
+        Path miniaturaHuerfana = temporal("miniaturas-1.img", AHORA.minus(Duration.ofHours(2)));
+        Path enCurso = temporal("producto-2.img", AHORA.minus(Duration.ofMinutes(5)));
+        Path ajeno = temporal("otro-1.img", AHORA.minus(Duration.ofHours(2)));
+
+        // Act
+        barrido.barrer();
+
+        // Assert
+        assertFalse(Files.exists(huerfano));
+        assertFalse(Files.exists(miniaturaHuerfana));
+        assertTrue(Files.exists(enCurso));
+        assertTrue(Files.exists(ajeno));
+    }
+
+    private Path temporal(String nombre, Instant modificado) throws IOException {
+        Path fichero = Files.writeString(directorio.resolve(nombre), "imagen");
+        Files.setLastModifiedTime(fichero, FileTime.from(modificado));
+        return fichero;
+    }
+}
@@ -0,0 +1,296 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de carga HTTP de la API con la aplicación completa sobre H2, imágenes en disco
+ * local en lugar de Cloudinary y una tabla deliveries sembrada.
+ *
+ * Genera tráfico mixto a ritmo constante (modelo abierto): cada petición tiene su hora
+ * programada y la latencia se mide desde ella, así que las esperas en cola del cliente
+ * cuentan como latencia. Deja p50/p99/p999 y throughput por endpoint en un JSON.
+ *
+ * Excluida de la ejecución normal:
+ *   mvn test -Dgroups=carga -DexcludedGroups= -Dcarga.rps=300 -Dcarga.duracion=60
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:carga;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false",
+        "spring.boot.admin.client.enabled=false",
+        "imagenes.store=local",
+        "imagenes.local.directorio=${java.io.tmpdir}/carga-imagenes",
+        "logging.level.root=WARN",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.com.products.product=WARN",
+        "logging.level.com.products.product.pruebas_Unitarias.CargaApiTest=INFO",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.org.springframework.security=WARN",
+        "logging.level.com.zaxxer.hikari=WARN"
+})
+class CargaApiTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CargaApiTest.class);
+
+    private static final int RPS = Integer.getInteger("carga.rps", 200);
+    private static final int DURACION_S = Integer.getInteger("carga.duracion", 30);
+    private static final int CALENTAMIENTO_S = Integer.getInteger("carga.calentamiento", 5);
+    private static final int HILOS = Integer.getInteger("carga.hilos", 64);
+    private static final String INFORME = System.getProperty("carga.informe", "target/carga-informe.json");
+
+    private static final int PRODUCTOS = 500;
+    private static final int USUARIOS = 1_000;
+    private static final long LATENCIA_MAXIMA_NS = TimeUnit.MINUTES.toNanos(1);
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> productos = new ArrayList<>();
+    private final AtomicLong resenas = new AtomicLong();
+    private Long productoResenas;
+    private HttpClient cliente;
+
+    @BeforeEach
+    void setUp() {
+        Categoria[] categorias = Categoria.values();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Product product = new Product();
+            product.setNombre((i % 20 == 0 ? "Teclado mecánico " : "Producto ") + i);
+            product.setCategoria(categorias[i % categorias.length]);
+            product.setPrecio(5.0 + i % 300);
+            product.setCantidad(1_000_000);
+            product.setDescripcion("Descripción del producto " + i);
+            productos.add(productRepository.save(product).getId());
+        }
+        productoResenas = productos.get(0);
+
+        // La tabla de entregas pertenece a otro servicio: cada reseña usa un usuario nuevo ya entregado
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS deliveries (user_id BIGINT, product_id BIGINT, estado VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO deliveries (user_id, product_id, estado) " +
+                "SELECT X, ?, 'ENTREGADA' FROM SYSTEM_RANGE(1, ?)", productoResenas, (long) RPS * (DURACION_S + CALENTAMIENTO_S));
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_deliveries_usuario ON deliveries (user_id, product_id, estado)");
+
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Test
+    void traficoMixto_ShouldReportLatencyPerEndpoint() throws Exception {
+        List<Operacion> mezcla = List.of(
+                new Operacion("GET /api/productos/{id}", 30, () -> get("/api/productos/" + producto())),
+                new Operacion("GET /api/productos/search", 15, () -> get("/api/productos/search?categoria="
+                        + Categoria.values()[aleatorio(Categoria.values().length)] + "&orden=PRECIO_ASC&size=20")),
+                new Operacion("GET /api/productos/buscar", 10, () -> get("/api/productos/buscar?nombre=teclado&size=20")),
+                new Operacion("GET /api/reviews/product/{id}/pagina", 10, () -> get("/api/reviews/product/" + productoResenas + "/pagina?size=20")),
+                new Operacion("POST /api/productos/carrito/{id}", 15, () -> conUsuario(post("/api/productos/carrito/" + producto(), "{\"cantidad\":1}"))),
+                new Operacion("GET /api/productos/carrito/resumen", 5, () -> conUsuario(HttpRequest.newBuilder(uri("/api/productos/carrito/resumen")).GET())),
+                new Operacion("POST /api/productos/stock/batch", 10, () -> post("/api/productos/stock/batch",
+                        "[{\"productId\":" + producto() + ",\"cantidad\":1},{\"productId\":" + producto() + ",\"cantidad\":1}]")),
+                new Operacion("POST /api/reviews", 5, () -> post("/api/reviews", "{\"userId\":" + resenas.incrementAndGet()
+                        + ",\"product\":{\"id\":" + productoResenas + "},\"rating\":" + (1 + aleatorio(5)) + ",\"comment\":\"Prueba de carga\"}"))
+        );
+        int pesoTotal = mezcla.stream().mapToInt(Operacion::peso).sum();
+
+        long intervaloNs = TimeUnit.SECONDS.toNanos(1) / RPS;
+        long total = (long) RPS * (CALENTAMIENTO_S + DURACION_S);
+        long inicioMedicion = (long) RPS * CALENTAMIENTO_S;
+
+        ExecutorService trabajadores = Executors.newFixedThreadPool(HILOS);
+        long inicio = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long programado = inicio + i * intervaloNs;
+            long espera = programado - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            Operacion operacion = elegir(mezcla, pesoTotal);
+            boolean medir = i >= inicioMedicion;
+            trabajadores.execute(() -> operacion.ejecutar(cliente, programado, medir));
+        }
+        trabajadores.shutdown();
+        assertTrue(trabajadores.awaitTermination(2, TimeUnit.MINUTES), "Peticiones sin terminar tras la carga");
+        // Ventana real de medición: desde la primera petición medida hasta que termina la última
+        double medidoS = (System.nanoTime() - (inicio + inicioMedicion * intervaloNs)) / 1e9;
+
+        Map<String, Object> informe = informe(mezcla, medidoS);
+        File fichero = new File(INFORME);
+        fichero.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(fichero, informe);
+        imprimir(mezcla, medidoS);
+
+        long errores = mezcla.stream().mapToLong(o -> o.errores.sum()).sum();
+        long peticiones = mezcla.stream().mapToLong(o -> o.latencias.getTotalCount()).sum();
+        assertTrue(peticiones > 0);
+        assertTrue(errores <= peticiones / 100, "Más de un 1% de errores: " + errores + " de " + peticiones);
+    }
+
+    private Map<String, Object> informe(List<Operacion> mezcla, double medidoS) {
+        Map<String, Object> configuracion = new LinkedHashMap<>();
+        configuracion.put("rps", RPS);
+        configuracion.put("duracionS", DURACION_S);
+        configuracion.put("medidoS", medidoS);
+        configuracion.put("calentamientoS", CALENTAMIENTO_S);
+        configuracion.put("hilos", HILOS);
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long totalPeticiones = 0;
+        for (Operacion operacion : mezcla) {
+            Histogram h = operacion.latencias;
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("peticiones", h.getTotalCount());
+            resultado.put("throughput", h.getTotalCount() / medidoS);
+            resultado.put("errores", operacion.errores.sum());
+            resultado.put("conflictos", operacion.conflictos.sum());
+            resultado.put("p50Ms", ms(h.getValueAtPercentile(50)));
+            resultado.put("p99Ms", ms(h.getValueAtPercentile(99)));
+            resultado.put("p999Ms", ms(h.getValueAtPercentile(99.9)));
+            resultado.put("maxMs", ms(h.getMaxValue()));
+            endpoints.put(operacion.nombre(), resultado);
+            totalPeticiones += h.getTotalCount();
+        }
+
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("configuracion", configuracion);
+        informe.put("peticiones", totalPeticiones);
+        informe.put("throughput", totalPeticiones / medidoS);
+        informe.put("endpoints", endpoints);
+        return informe;
+    }
+
+    private void imprimir(List<Operacion> mezcla, double medidoS) {
+        StringBuilder resumen = new StringBuilder(String.format("Carga medida durante %.1f s%n", medidoS));
+        resumen.append(String.format("%-40s %9s %9s %9s %9s %9s %7s%n", "endpoint", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errores"));
+        for (Operacion o : mezcla) {
+            Histogram h = o.latencias;
+            resumen.append(String.format("%-40s %9.1f %9.2f %9.2f %9.2f %9.2f %7d%n", o.nombre(), h.getTotalCount() / medidoS,
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(99)),
+                    ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()), o.errores.sum()));
+        }
+        resumen.append("Informe: ").append(new File(INFORME).getAbsolutePath());
+        logger.info("{}", resumen);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static Operacion elegir(List<Operacion> mezcla, int pesoTotal) {
+        int r = aleatorio(pesoTotal);
+        for (Operacion operacion : mezcla) {
+            r -= operacion.peso();
+            if (r < 0) {
+                return operacion;
+            }
+        }
+        return mezcla.get(mezcla.size() - 1);
+    }
+
+    private static int aleatorio(int limite) {
+        return ThreadLocalRandom.current().nextInt(limite);
+    }
+
+    private Long producto() {
+        return productos.get(aleatorio(productos.size()));
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://localhost:" + puerto + ruta);
+    }
+
+    private HttpRequest.Builder get(String ruta) {
+        return HttpRequest.newBuilder(uri(ruta)).GET();
+    }
+
+    private HttpRequest.Builder post(String ruta, String json) {
+        return HttpRequest.newBuilder(uri(ruta))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static HttpRequest.Builder conUsuario(HttpRequest.Builder peticion) {
+        return peticion.header("X-User-Id", "usuario-" + aleatorio(USUARIOS));
+    }
+
+    private record Operacion(String nombre, int peso, Supplier<HttpRequest.Builder> peticion,
+                             ConcurrentHistogram latencias, LongAdder errores, LongAdder conflictos) {
+
+        Operacion(String nombre, int peso, Supplier<HttpRequest.Builder> peticion) {
+            this(nombre, peso, peticion, new ConcurrentHistogram(LATENCIA_MAXIMA_NS, 3), new LongAdder(), new LongAdder());
+        }
+
+        void ejecutar(HttpClient cliente, long programado, boolean medir) {
+            int estado;
+            try {
+                estado = cliente.send(peticion.get().timeout(Duration.ofSeconds(30)).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                estado = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!medir) {
+                return;
+            }
+            // Desde la hora programada, no desde el envío: evita la omisión coordinada
+            latencias.recordValue(Math.min(System.nanoTime() - programado, LATENCIA_MAXIMA_NS));
+            if (estado == 409) {
+                conflictos.increment();
+            } else if (estado < 200 || estado >= 300) {
+                errores.increment();
+            }
+        }
+    }
+}
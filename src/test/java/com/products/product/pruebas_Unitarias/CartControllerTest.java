@@ -1,8 +1,12 @@
 package com.products.product.pruebas_Unitarias;
 
 import com.products.product.controller.CartController;
+import com.products.product.dto.CambioCarrito;
+import com.products.product.dto.OperacionCarrito;
+import com.products.product.dto.ResumenCarrito;
 import com.products.product.entity.CartItem;
 import com.products.product.entity.Product;
+import com.products.product.exception.StockInsuficienteException;
 import com.products.product.service.CartService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -174,4 +179,46 @@ class CartControllerTest {
         assertEquals(400, response.getStatusCodeValue());
         verify(cartService).removeFromCart(userId, productId);
     }
-}
+
+    @Test
+    void getCartSummary_ShouldReturnSummary() {
+        // Arrange
+        ResumenCarrito resumen = new ResumenCarrito("user1", List.of(), 0, BigDecimal.ZERO);
+        when(cartService.getCartSummary("user1")).thenReturn(resumen);
+
+        // Act
+        ResumenCarrito result = cartController.getCartSummary("user1");
+
+        // Assert
+        assertSame(resumen, result);
+    }
+
+    @Test
+    void aplicarCambios_ShouldReturnSummary() {
+        // Arrange
+        List<CambioCarrito> cambios = List.of(new CambioCarrito(1L, 2, OperacionCarrito.AGREGAR));
+        ResumenCarrito resumen = new ResumenCarrito("user1", List.of(), 2, BigDecimal.TEN);
+        when(cartService.aplicarCambios("user1", cambios)).thenReturn(resumen);
+
+        // Act
+        ResponseEntity<?> response = cartController.aplicarCambios(cambios, "user1");
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(resumen, response.getBody());
+    }
+
+    @Test
+    void aplicarCambios_ShouldReturnConflictWhenStockInsufficient() {
+        // Arrange
+        List<CambioCarrito> cambios = List.of(new CambioCarrito(1L, 50, OperacionCarrito.ESTABLECER));
+        when(cartService.aplicarCambios("user1", cambios)).thenThrow(new StockInsuficienteException(1L));
+
+        // Act
+        ResponseEntity<?> response = cartController.aplicarCambios(cambios, "user1");
+
+        // Assert
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals(1L, ((Map<?, ?>) response.getBody()).get("productId"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.dto.LineaCarrito;
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.exception.StockInsuficienteException;
+import com.products.product.repository.CartItemRepository;
+import com.products.product.repository.JpaCartStore;
+import com.products.product.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CartItemRepositoryTest {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            Product product = new Product();
+            product.setNombre("Producto " + i);
+            product.setCategoria(Categoria.ELECTRONICA);
+            product.setPrecio(10.0 * i);
+            product.setCantidad(i);
+            product = productRepository.save(product);
+            productIds.add(product.getId());
+
+            CartItem item = new CartItem();
+            item.setUserId("user1");
+            item.setProduct(product);
+            item.setQuantity(1);
+            cartItemRepository.save(item);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findLineasByUserId_ShouldLoadCartInOneQuery() {
+        // Act
+        List<LineaCarrito> lineas = cartItemRepository.findLineasByUserId("user1");
+
+        // Assert
+        assertEquals(5, lineas.size());
+        assertEquals("Producto 1", lineas.get(0).getNombre());
+        assertEquals(50.0, lineas.get(4).getPrecio());
+        assertEquals(1L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByUserId_ShouldFetchProductsWithItems() {
+        // Act
+        List<CartItem> items = cartItemRepository.findByUserId("user1");
+
+        // Assert
+        assertEquals(5, items.size());
+        assertEquals(1L, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void saveCantidades_ShouldApplyBatchedInsertsUpdatesAndDeletes() {
+        // Arrange
+        JpaCartStore store = store();
+        Long primero = productIds.get(0);
+        Long segundo = productIds.get(1);
+        Long quinto = productIds.get(4);
+
+        // Act
+        store.saveCantidades("user1", store.bloquearCantidades("user1"), Map.of(primero, 7), Set.of(segundo));
+        store.saveCantidades("user2", store.bloquearCantidades("user2"), Map.of(quinto, 2), Set.of());
+
+        // Assert
+        Map<Long, Integer> user1 = store.findCantidadesByUserId("user1");
+        assertEquals(4, user1.size());
+        assertEquals(7, user1.get(primero));
+        assertFalse(user1.containsKey(segundo));
+        assertEquals(Map.of(quinto, 2), store.findCantidadesByUserId("user2"));
+    }
+
+    @Test
+    void saveCantidades_ShouldAddToLineCreatedAfterReading() {
+        // Arrange: user2 no tenía el producto al leer y otra petición lo agrega antes de escribir
+        JpaCartStore store = store();
+        Product product = productRepository.findById(productIds.get(4)).orElseThrow(); // stock 5
+        Map<Long, Integer> leidas = store.bloquearCantidades("user2");
+        store.agregar("user2", product, 2);
+
+        // Act
+        store.saveCantidades("user2", leidas, Map.of(product.getId(), 3), Set.of());
+
+        // Assert: ninguna de las dos escrituras se pierde
+        assertEquals(Map.of(product.getId(), 5), store.findCantidadesByUserId("user2"));
+    }
+
+    @Test
+    void saveCantidades_ShouldRejectNewLineOverStock() {
+        // Arrange
+        JpaCartStore store = store();
+        Product product = productRepository.findById(productIds.get(2)).orElseThrow(); // stock 3
+        Map<Long, Integer> leidas = store.bloquearCantidades("user2");
+        store.agregar("user2", product, 2);
+
+        // Act & Assert
+        StockInsuficienteException ex = assertThrows(StockInsuficienteException.class,
+                () -> store.saveCantidades("user2", leidas, Map.of(product.getId(), 2), Set.of()));
+        assertEquals(product.getId(), ex.getProductId());
+    }
+
+    @Test
+    void agregar_ShouldUpsertLineWithinStock() {
+        // Arrange
+        JpaCartStore store = store();
+        Product product = productRepository.findById(productIds.get(2)).orElseThrow(); // stock 3
+
+        // Act
+        CartItem existente = store.agregar("user1", product, 2);
+        CartItem nueva = store.agregar("user2", product, 3);
+        CartItem sinStock = store.agregar("user2", product, 1);
+
+        // Assert
+        assertEquals(3, existente.getQuantity());
+        assertNotNull(existente.getId());
+        assertEquals(3, nueva.getQuantity());
+        assertNull(sinStock);
+        assertEquals(Map.of(product.getId(), 3), store.findCantidadesByUserId("user2"));
+    }
+
+    private JpaCartStore store() {
+        return new JpaCartStore(cartItemRepository, jdbcTemplate, new DatabasePlatform(dataSource), transactionManager);
+    }
+}
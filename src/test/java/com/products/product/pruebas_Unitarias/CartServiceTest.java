@@ -1,19 +1,31 @@
 package com.products.product.pruebas_Unitarias;
 
+import com.products.product.config.MetricasConfig;
+import com.products.product.dto.CambioCarrito;
+import com.products.product.dto.LineaCarrito;
+import com.products.product.dto.OperacionCarrito;
+import com.products.product.dto.ResumenCarrito;
 import com.products.product.entity.CartItem;
 import com.products.product.entity.Product;
-import com.products.product.repository.CartItemRepository;
+import com.products.product.exception.StockInsuficienteException;
+import com.products.product.repository.CartStore;
 import com.products.product.service.CartService;
 import com.products.product.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -23,11 +35,14 @@ import static org.mockito.Mockito.*;
 class CartServiceTest {
 
     @Mock
-    private CartItemRepository cartItemRepository;
+    private CartStore cartStore;
 
     @Mock
     private ProductService productService;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private CartService cartService;
 
@@ -53,7 +68,7 @@ class CartServiceTest {
     void getCartItems_ShouldReturnUserCartItems() {
         // Arrange
         String userId = "user1";
-        when(cartItemRepository.findByUserId(userId)).thenReturn(List.of(testCartItem));
+        when(cartStore.findByUserId(userId)).thenReturn(List.of(testCartItem));
 
         // Act
         List<CartItem> result = cartService.getCartItems(userId);
@@ -62,7 +77,7 @@ class CartServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(testCartItem, result.get(0));
-        verify(cartItemRepository).findByUserId(userId);
+        verify(cartStore).findByUserId(userId);
     }
 
     @Test
@@ -74,9 +89,7 @@ class CartServiceTest {
         Integer quantity = 2;
 
         when(productService.getProductById(productId)).thenReturn(testProduct);
-        when(productService.verificarDisponibilidad(productId, quantity)).thenReturn(true);
-        when(cartItemRepository.findByUserIdAndProductId(userId, productId)).thenReturn(null);
-        when(cartItemRepository.save(any(CartItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cartStore.agregar(userId, testProduct, quantity)).thenReturn(new CartItem(7L, testProduct, quantity, userId));
 
         // Act
         CartItem result = cartService.addToCart(userId, productId, quantity);
@@ -86,8 +99,9 @@ class CartServiceTest {
         assertEquals(userId, result.getUserId());
         assertEquals(productId, result.getProduct().getId());
         assertEquals(quantity, result.getQuantity());
-        verify(productService).verificarDisponibilidad(productId, quantity);
-        verify(cartItemRepository).save(any(CartItem.class));
+        verify(productService, times(1)).getProductById(productId);
+        verify(productService, never()).verificarDisponibilidad(anyLong(), anyInt());
+        verify(cartStore, never()).findByUserIdAndProductId(anyString(), anyLong());
     }
 
     @Test
@@ -98,11 +112,9 @@ class CartServiceTest {
         Long productId = 1L;
         Integer newQuantity = 3;
 
-        when(productService.verificarDisponibilidad(productId, newQuantity)).thenReturn(true);
-        when(cartItemRepository.findByUserIdAndProductId(userId, productId)).thenReturn(testCartItem);
-        when(cartItemRepository.save(any(CartItem.class))).thenAnswer(invocation -> {
-            CartItem saved = invocation.getArgument(0);
-            testCartItem.setQuantity(saved.getQuantity());
+        when(productService.getProductById(productId)).thenReturn(testProduct);
+        when(cartStore.agregar(userId, testProduct, newQuantity)).thenAnswer(invocation -> {
+            testCartItem.setQuantity(testCartItem.getQuantity() + newQuantity);
             return testCartItem;
         });
 
@@ -112,8 +124,8 @@ class CartServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(5, result.getQuantity()); // 2 existentes + 3 nuevos
-        verify(productService).verificarDisponibilidad(productId, newQuantity);
-        verify(cartItemRepository).save(testCartItem);
+        verify(cartStore).agregar(userId, testProduct, newQuantity);
+        verify(cartStore, never()).save(any());
     }
 
     @Test
@@ -124,11 +136,22 @@ class CartServiceTest {
         Long productId = 1L;
         Integer quantity = 15;
 
-        when(productService.verificarDisponibilidad(productId, quantity)).thenReturn(false);
+        when(productService.getProductById(productId)).thenReturn(testProduct);
+        when(cartStore.agregar(userId, testProduct, quantity)).thenReturn(null);
+
+        // Act & Assert
+        StockInsuficienteException ex = assertThrows(StockInsuficienteException.class,
+                () -> cartService.addToCart(userId, productId, quantity));
+        assertEquals(productId, ex.getProductId());
+        verify(cartStore, never()).save(any());
+        assertEquals(1.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_STOCK, "operacion", "carrito").count());
+    }
 
+    @Test
+    void addToCart_ShouldRejectNonPositiveQuantity() {
         // Act & Assert
-        assertThrows(RuntimeException.class, () -> cartService.addToCart(userId, productId, quantity));
-        verify(cartItemRepository, never()).save(any());
+        assertThrows(IllegalArgumentException.class, () -> cartService.addToCart("user1", 1L, 0));
+        verifyNoInteractions(cartStore, productService);
     }
 
     @Test
@@ -140,8 +163,8 @@ class CartServiceTest {
         Integer newQuantity = 5;
 
         when(productService.verificarDisponibilidad(productId, newQuantity)).thenReturn(true);
-        when(cartItemRepository.findByUserIdAndProductId(userId, productId)).thenReturn(testCartItem);
-        when(cartItemRepository.save(any(CartItem.class))).thenAnswer(invocation -> {
+        when(cartStore.findByUserIdAndProductId(userId, productId)).thenReturn(testCartItem);
+        when(cartStore.save(any(CartItem.class))).thenAnswer(invocation -> {
             CartItem saved = invocation.getArgument(0);
             testCartItem.setQuantity(saved.getQuantity());
             return testCartItem;
@@ -154,7 +177,7 @@ class CartServiceTest {
         assertNotNull(result);
         assertEquals(newQuantity, result.getQuantity());
         verify(productService).verificarDisponibilidad(productId, newQuantity);
-        verify(cartItemRepository).save(testCartItem);
+        verify(cartStore).save(testCartItem);
     }
 
     @Test
@@ -165,11 +188,11 @@ class CartServiceTest {
         Long productId = 1L;
         Integer quantity = 5;
 
-        when(cartItemRepository.findByUserIdAndProductId(userId, productId)).thenReturn(null);
+        when(cartStore.findByUserIdAndProductId(userId, productId)).thenReturn(null);
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> cartService.updateQuantity(userId, productId, quantity));
-        verify(cartItemRepository, never()).save(any());
+        verify(cartStore, never()).save(any());
     }
 
     @Test
@@ -178,12 +201,99 @@ class CartServiceTest {
         // Arrange
         String userId = "user1";
         Long productId = 1L;
-        doNothing().when(cartItemRepository).deleteByUserIdAndProductId(userId, productId);
+        doNothing().when(cartStore).deleteByUserIdAndProductId(userId, productId);
 
         // Act
         cartService.removeFromCart(userId, productId);
 
         // Assert
-        verify(cartItemRepository).deleteByUserIdAndProductId(userId, productId);
+        verify(cartStore).deleteByUserIdAndProductId(userId, productId);
+    }
+
+    @Test
+    void getCartSummary_ShouldComputeSubtotalsAndTotal() {
+        // Arrange
+        LineaCarrito linea1 = new LineaCarrito(1L, 1L, "Test Product", 99.99, "img", 10, 2);
+        LineaCarrito linea2 = new LineaCarrito(2L, 2L, "Otro", 0.1, null, 5, 3);
+        when(cartStore.findLineasByUserId("user1")).thenReturn(List.of(linea1, linea2));
+
+        // Act
+        ResumenCarrito result = cartService.getCartSummary("user1");
+
+        // Assert
+        assertEquals(new BigDecimal("199.98"), linea1.getSubtotal());
+        assertEquals(new BigDecimal("0.30"), linea2.getSubtotal());
+        assertEquals(new BigDecimal("200.28"), result.getTotal());
+        assertEquals(5, result.getTotalUnidades());
+        verify(cartStore, never()).findByUserId(anyString());
+    }
+
+    @Test
+    void getCartSummary_ShouldReturnZeroTotalForEmptyCart() {
+        // Arrange
+        when(cartStore.findLineasByUserId("user1")).thenReturn(List.of());
+
+        // Act
+        ResumenCarrito result = cartService.getCartSummary("user1");
+
+        // Assert
+        assertTrue(result.getItems().isEmpty());
+        assertEquals(new BigDecimal("0.00"), result.getTotal());
+    }
+
+    @Test
+    void aplicarCambios_ShouldMergeOperationsAndSaveInOneBatch() {
+        // Arrange
+        String userId = "user1";
+        when(cartStore.bloquearCantidades(userId)).thenReturn(Map.of(1L, 2, 3L, 1));
+        when(productService.obtenerStock(anyCollection())).thenReturn(Map.of(1L, 10, 2L, 10));
+        when(cartStore.findLineasByUserId(userId)).thenReturn(List.of());
+
+        // Act
+        cartService.aplicarCambios(userId, List.of(
+                new CambioCarrito(1L, 3, OperacionCarrito.AGREGAR),
+                new CambioCarrito(2L, 4, OperacionCarrito.ESTABLECER),
+                new CambioCarrito(2L, 1, OperacionCarrito.AGREGAR),
+                new CambioCarrito(3L, null, OperacionCarrito.ELIMINAR)));
+
+        // Assert
+        verify(cartStore).saveCantidades(userId, Map.of(1L, 2, 3L, 1), Map.of(1L, 5, 2L, 5), Set.of(3L));
+        verify(productService, times(1)).obtenerStock(anyCollection());
+        verify(productService, never()).getProductById(anyLong());
+        verify(cartStore, never()).save(any());
+    }
+
+    @Test
+    void aplicarCambios_ShouldRejectWhenFinalQuantityExceedsStock() {
+        // Arrange
+        String userId = "user1";
+        when(cartStore.bloquearCantidades(userId)).thenReturn(Map.of(1L, 8));
+        when(productService.obtenerStock(anyCollection())).thenReturn(Map.of(1L, 10));
+
+        // Act & Assert
+        StockInsuficienteException ex = assertThrows(StockInsuficienteException.class,
+                () -> cartService.aplicarCambios(userId, List.of(new CambioCarrito(1L, 3, OperacionCarrito.AGREGAR))));
+        assertEquals(1L, ex.getProductId());
+        verify(cartStore, never()).saveCantidades(any(), any(), any(), any());
+    }
+
+    @Test
+    void aplicarCambios_ShouldRejectUnknownProduct() {
+        // Arrange
+        when(cartStore.bloquearCantidades("user1")).thenReturn(Map.of());
+        when(productService.obtenerStock(anyCollection())).thenReturn(Map.of());
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> cartService.aplicarCambios("user1",
+                List.of(new CambioCarrito(99L, 1, OperacionCarrito.ESTABLECER))));
+        verify(cartStore, never()).saveCantidades(any(), any(), any(), any());
+    }
+
+    @Test
+    void aplicarCambios_ShouldRejectInvalidQuantity() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> cartService.aplicarCambios("user1",
+                List.of(new CambioCarrito(1L, 0, OperacionCarrito.AGREGAR))));
+        verify(productService, never()).obtenerStock(anyCollection());
     }
 }
\ No newline at end of file
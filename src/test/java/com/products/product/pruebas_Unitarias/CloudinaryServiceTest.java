@@ -3,18 +3,26 @@ package com.products.product.pruebas_Unitarias;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Uploader;
 import com.cloudinary.utils.ObjectUtils;
+import com.products.product.exception.SubidaRechazadaException;
+import com.products.product.repository.CloudinaryImageStore;
 import com.products.product.service.CloudinaryService;
+import com.products.product.service.LimitadorSubidas;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -29,13 +37,17 @@ class CloudinaryServiceTest {
     @Mock
     private Uploader uploader;
 
-    @InjectMocks
+    private LimitadorSubidas limitador = new LimitadorSubidas(1, 0);
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private CloudinaryService cloudinaryService;
 
     private MultipartFile testFile;
 
     @BeforeEach
     void setUp() {
+        cloudinaryService = new CloudinaryService(new CloudinaryImageStore(cloudinary), limitador, meterRegistry);
         testFile = new MockMultipartFile("test.jpg", "test.jpg", "image/jpeg", "test image content".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
     }
@@ -44,7 +56,7 @@ class CloudinaryServiceTest {
     void uploadImage_ShouldReturnImageUrl() throws IOException {
         // Arrange
         String expectedUrl = "http://cloudinary.com/test.jpg";
-        when(uploader.upload(any(byte[].class), eq(ObjectUtils.emptyMap())))
+        when(uploader.upload(any(File.class), eq(ObjectUtils.emptyMap())))
                 .thenReturn(Map.of("url", expectedUrl));
 
         // Act
@@ -52,18 +64,22 @@ class CloudinaryServiceTest {
 
         // Assert
         assertEquals(expectedUrl, result);
-        verify(uploader).upload(any(byte[].class), eq(ObjectUtils.emptyMap()));
+        verify(uploader).upload(any(File.class), eq(ObjectUtils.emptyMap()));
+        verify(uploader, never()).upload(any(byte[].class), any());
+        assertEquals(testFile.getSize(), meterRegistry.counter("imagenes.subida.bytes").count());
     }
 
     @Test
     void uploadImage_ShouldThrowExceptionWhenUploadFails() throws IOException {
         // Arrange
-        when(uploader.upload(any(byte[].class), eq(ObjectUtils.emptyMap())))
+        when(uploader.upload(any(File.class), eq(ObjectUtils.emptyMap())))
                 .thenThrow(new IOException("Upload failed"));
 
         // Act & Assert
         assertThrows(IOException.class, () -> cloudinaryService.uploadImage(testFile));
-        verify(uploader).upload(any(byte[].class), eq(ObjectUtils.emptyMap()));
+        verify(uploader).upload(any(File.class), eq(ObjectUtils.emptyMap()));
+        assertEquals(1, limitador.huecosLibres());
+        assertEquals(0.0, meterRegistry.counter("imagenes.subida.bytes").count());
     }
 
     @Test
@@ -92,4 +108,61 @@ class CloudinaryServiceTest {
         assertThrows(IOException.class, () -> cloudinaryService.deleteImage(imageUrl));
         verify(uploader).destroy(eq("test"), eq(ObjectUtils.emptyMap()));
     }
+
+    @Test
+    void uploadImage_FromFile_ShouldStreamFileWithoutReadingIt() throws IOException {
+        // Arrange
+        File file = new File("producto.img");
+        when(uploader.upload(eq(file), eq(ObjectUtils.emptyMap()))).thenReturn(Map.of("url", "http://cloudinary.com/f.jpg"));
+
+        // Act
+        String result = cloudinaryService.uploadImage(file);
+
+        // Assert
+        assertEquals("http://cloudinary.com/f.jpg", result);
+        verify(uploader, never()).upload(any(byte[].class), any());
+    }
+
+
+    @Test
+    void uploadImage_ShouldDeleteTemporaryFileAfterUpload() throws IOException {
+        // Arrange
+        File[] enviado = new File[1];
+        when(uploader.upload(any(File.class), eq(ObjectUtils.emptyMap()))).thenAnswer(inv -> {
+            enviado[0] = inv.getArgument(0);
+            assertTrue(enviado[0].exists());
+            return Map.of("url", "http://cloudinary.com/test.jpg");
+        });
+
+        // Act
+        cloudinaryService.uploadImage(testFile);
+
+        // Assert
+        assertFalse(enviado[0].exists());
+    }
+
+    @Test
+    void uploadImage_ShouldRejectWhenNoSlotIsFree() throws Exception {
+        // Arrange
+        CountDownLatch subiendo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(uploader.upload(any(File.class), eq(ObjectUtils.emptyMap()))).thenAnswer(inv -> {
+            subiendo.countDown();
+            liberar.await();
+            return Map.of("url", "http://cloudinary.com/test.jpg");
+        });
+        ExecutorService otroHilo = Executors.newSingleThreadExecutor();
+        Future<String> primera = otroHilo.submit(() -> cloudinaryService.uploadImage(new File("a.img")));
+        subiendo.await();
+
+        // Act & Assert
+        try {
+            assertThrows(SubidaRechazadaException.class, () -> cloudinaryService.uploadImage(new File("b.img")));
+        } finally {
+            liberar.countDown();
+            otroHilo.shutdown();
+        }
+        assertEquals("http://cloudinary.com/test.jpg", primera.get());
+        assertEquals(1, limitador.huecosLibres());
+    }
 }
\ No newline at end of file
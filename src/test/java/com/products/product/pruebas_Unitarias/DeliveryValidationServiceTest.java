@@ -0,0 +1,112 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.service.DeliveryValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryValidationServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DeliveryValidationService deliveryValidationService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deliveryValidationService = new DeliveryValidationService(jdbcTemplate, 1000, Duration.ofMinutes(5), meterRegistry);
+    }
+
+    @Test
+    void hasUserReceivedProduct_ShouldCachePositiveResult() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(contains("EXISTS"), eq(Boolean.class), eq(1L), eq(2L))).thenReturn(true);
+
+        // Act
+        boolean primera = deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+        boolean segunda = deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+
+        // Assert
+        assertTrue(primera);
+        assertTrue(segunda);
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), any(), any());
+    }
+
+    @Test
+    void hasUserReceivedProduct_ShouldCacheNegativeUntilInvalidated() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1L), eq(2L))).thenReturn(false, true);
+
+        // Act
+        boolean antes = deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+        boolean cacheado = deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+        deliveryValidationService.invalidar(1L, 2L);
+        boolean despues = deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+
+        // Assert
+        assertFalse(antes);
+        assertFalse(cacheado);
+        assertTrue(despues);
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Boolean.class), any(), any());
+    }
+
+    @Test
+    void hasUserReceivedProduct_ShouldNotCacheErrors() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1L), eq(2L)))
+                .thenThrow(new RuntimeException("sin conexión"))
+                .thenReturn(true);
+
+        // Act & Assert
+        assertFalse(deliveryValidationService.hasUserReceivedProduct(1L, 2L));
+        assertTrue(deliveryValidationService.hasUserReceivedProduct(1L, 2L));
+    }
+
+    @Test
+    void productosRecibidos_ShouldOnlyQueryUncachedPairs() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1L), eq(2L))).thenReturn(true);
+        deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(List.of(3L));
+
+        // Act
+        Set<Long> primera = deliveryValidationService.productosRecibidos(1L, List.of(2L, 3L, 4L));
+        Set<Long> segunda = deliveryValidationService.productosRecibidos(1L, List.of(2L, 3L, 4L));
+
+        // Assert
+        assertEquals(Set.of(2L, 3L), primera);
+        assertEquals(Set.of(2L, 3L), segunda);
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any(Object[].class));
+    }
+
+
+    @Test
+    void hasUserReceivedProduct_ShouldExposeCacheHitsAndMisses() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(contains("EXISTS"), eq(Boolean.class), eq(1L), eq(2L))).thenReturn(true);
+
+        // Act
+        deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+        deliveryValidationService.hasUserReceivedProduct(1L, 2L);
+
+        // Assert
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "entregas").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "entregas").tag("result", "miss").functionCounter().count());
+    }
+}
\ No newline at end of file
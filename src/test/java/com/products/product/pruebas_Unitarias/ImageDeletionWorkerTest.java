@@ -0,0 +1,143 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.entity.ImageDeletion;
+import com.products.product.repository.ImageDeletionRepository;
+import com.products.product.service.CloudinaryService;
+import com.products.product.service.ImageDeletionWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Con el dialecto de PostgreSQL el bloqueo se traduce a FOR NO KEY UPDATE, que H2 no admite
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+// Sin la transacción de cada prueba: el worker abre las suyas y llama al proveedor fuera de ellas
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImageDeletionWorkerTest {
+
+    private static final Instant AHORA = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Autowired
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private CloudinaryService cloudinaryService;
+
+    private ImageDeletionWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new ImageDeletionWorker(imageDeletionRepository, cloudinaryService,
+                new TransactionTemplate(transactionManager), Clock.fixed(AHORA, ZoneOffset.UTC),
+                2, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageDeletionRepository.deleteAll();
+    }
+
+    @Test
+    void drenar_ShouldDeleteDueImagesInBatches() throws IOException {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            imageDeletionRepository.save(new ImageDeletion("http://cloudinary.com/" + i + ".jpg", AHORA.minusSeconds(i)));
+        }
+        imageDeletionRepository.save(new ImageDeletion("http://cloudinary.com/futura.jpg", AHORA.plusSeconds(60)));
+
+        // Act
+        int eliminadas = worker.drenar();
+
+        // Assert
+        assertEquals(5, eliminadas);
+        verify(cloudinaryService, times(5)).deleteImage(anyString());
+        verify(cloudinaryService, never()).deleteImage("http://cloudinary.com/futura.jpg");
+        List<ImageDeletion> restantes = imageDeletionRepository.findAll();
+        assertEquals(1, restantes.size());
+        assertEquals("http://cloudinary.com/futura.jpg", restantes.get(0).getUrl());
+    }
+
+    @Test
+    void drenar_ShouldRescheduleFailuresWithExponentialBackoff() throws IOException {
+        // Arrange
+        ImageDeletion fallida = imageDeletionRepository.save(new ImageDeletion("http://cloudinary.com/caida.jpg", AHORA));
+        fallida.setIntentos(2);
+        imageDeletionRepository.save(fallida);
+        imageDeletionRepository.save(new ImageDeletion("http://cloudinary.com/ok.jpg", AHORA));
+        doThrow(new IOException("503 Service Unavailable")).when(cloudinaryService).deleteImage("http://cloudinary.com/caida.jpg");
+
+        // Act
+        int eliminadas = worker.drenar();
+
+        // Assert
+        assertEquals(1, eliminadas);
+        ImageDeletion reprogramada = imageDeletionRepository.findById(fallida.getId()).orElseThrow();
+        assertEquals(3, reprogramada.getIntentos());
+        assertEquals(AHORA.plusSeconds(120), reprogramada.getProximoIntento());
+        assertEquals("503 Service Unavailable", reprogramada.getUltimoError());
+    }
+
+    @Test
+    void drenar_ShouldCapBackoffAndStopWhenWholeBatchFails() throws IOException {
+        // Arrange
+        for (int i = 1; i <= 4; i++) {
+            ImageDeletion eliminacion = new ImageDeletion("http://cloudinary.com/" + i + ".jpg", AHORA);
+            eliminacion.setIntentos(10);
+            imageDeletionRepository.save(eliminacion);
+        }
+        doThrow(new IOException("timeout")).when(cloudinaryService).deleteImage(anyString());
+
+        // Act
+        int eliminadas = worker.drenar();
+
+        // Assert
+        assertEquals(0, eliminadas);
+        // El primer lote falla entero: no se pide el segundo en esta pasada
+        verify(cloudinaryService, times(2)).deleteImage(anyString());
+        assertTrue(imageDeletionRepository.findAll().stream()
+                .filter(d -> d.getIntentos() == 11)
+                .allMatch(d -> d.getProximoIntento().equals(AHORA.plus(Duration.ofMinutes(5)))));
+    }
+
+
+    @Test
+    void drenar_ShouldCallProviderOutsideTransactionWithRowLeased() throws IOException {
+        // Arrange
+        ImageDeletion eliminacion = imageDeletionRepository.save(new ImageDeletion("http://cloudinary.com/1.jpg", AHORA));
+        doAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            // Mientras se llama al proveedor, otra pasada no vuelve a reclamar la fila
+            assertEquals(AHORA.plus(Duration.ofMinutes(10)),
+                    imageDeletionRepository.findById(eliminacion.getId()).orElseThrow().getProximoIntento());
+            return null;
+        }).when(cloudinaryService).deleteImage("http://cloudinary.com/1.jpg");
+
+        // Act
+        int eliminadas = worker.drenar();
+
+        // Assert
+        assertEquals(1, eliminadas);
+        assertTrue(imageDeletionRepository.findAll().isEmpty());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.entity.EstadoImagen;
+import com.products.product.entity.Product;
+import com.products.product.exception.SubidaRechazadaException;
+import com.products.product.exception.VersionRequeridaException;
+import com.products.product.service.CloudinaryService;
+import com.products.product.service.ImageUploadService;
+import com.products.product.service.MiniaturaService;
+import com.products.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageUploadServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CloudinaryService cloudinaryService;
+
+    @Mock
+    private MiniaturaService miniaturaService;
+
+    private final List<Runnable> tareas = new ArrayList<>();
+    private ImageUploadService imageUploadService;
+    private MockMultipartFile image;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        Executor executor = tareas::add; // Las subidas se ejecutan a mano en cada prueba
+        imageUploadService = new ImageUploadService(productService, cloudinaryService, miniaturaService, executor, 3, 0);
+        image = new MockMultipartFile("image", "test.jpg", "image/jpeg", "test image content".getBytes());
+        product = new Product();
+        product.setNombre("Test Product");
+        product.setImagenUrl("http://cliente.com/ignorada.jpg");
+    }
+
+    @Test
+    void crearConImagen_ShouldCreatePendingProductBeforeUploading() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+
+        // Act
+        Product result = imageUploadService.crearConImagen(product, image);
+
+        // Assert
+        assertEquals(EstadoImagen.PENDIENTE, result.getEstadoImagen());
+        assertNull(result.getImagenUrl());
+        assertNotNull(result.getImagenPendienteDesde());
+        assertEquals(1, tareas.size());
+        verifyNoInteractions(cloudinaryService);
+    }
+
+    @Test
+    void crearConImagen_ShouldStreamTempFileAndStoreUrl() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+        ArgumentCaptor<File> fichero = ArgumentCaptor.forClass(File.class);
+        when(cloudinaryService.uploadImage(fichero.capture())).thenAnswer(invocation -> {
+            assertArrayEquals("test image content".getBytes(), Files.readAllBytes(fichero.getValue().toPath()));
+            return "http://cloudinary.com/test.jpg";
+        });
+        when(productService.actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA)).thenReturn(true);
+
+        // Act
+        imageUploadService.crearConImagen(product, image);
+        tareas.forEach(Runnable::run);
+
+        // Assert
+        verify(productService).actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA);
+        verify(miniaturaService).programar(eq(1L), eq("http://cloudinary.com/test.jpg"), any());
+        assertFalse(fichero.getValue().exists());
+    }
+
+    @Test
+    void crearConImagen_ShouldRetryAndThenSucceed() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+        when(cloudinaryService.uploadImage(any(File.class)))
+                .thenThrow(new IOException("timeout"))
+                .thenThrow(new IOException("timeout"))
+                .thenReturn("http://cloudinary.com/test.jpg");
+
+        // Act
+        imageUploadService.crearConImagen(product, image);
+        tareas.forEach(Runnable::run);
+
+        // Assert
+        verify(cloudinaryService, times(3)).uploadImage(any(File.class));
+        verify(productService).actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA);
+    }
+
+    @Test
+    void crearConImagen_ShouldMarkErrorAfterLastAttempt() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+        when(cloudinaryService.uploadImage(any(File.class))).thenThrow(new IOException("caído"));
+
+        // Act
+        imageUploadService.crearConImagen(product, image);
+        tareas.forEach(Runnable::run);
+
+        // Assert
+        verify(cloudinaryService, times(3)).uploadImage(any(File.class));
+        verify(productService).actualizarImagen(1L, null, EstadoImagen.ERROR);
+        verify(productService, never()).actualizarImagen(anyLong(), anyString(), eq(EstadoImagen.SUBIDA));
+        verifyNoInteractions(miniaturaService);
+    }
+
+    @Test
+    void crearConImagen_ShouldRetryOnlyTheDatabaseWriteAfterUploading() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+        when(cloudinaryService.uploadImage(any(File.class))).thenReturn("http://cloudinary.com/test.jpg");
+        when(productService.actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA))
+                .thenThrow(new RuntimeException("sin conexión"))
+                .thenReturn(true);
+
+        // Act
+        imageUploadService.crearConImagen(product, image);
+        tareas.forEach(Runnable::run);
+
+        // Assert: la imagen se sube una sola vez
+        verify(cloudinaryService, times(1)).uploadImage(any(File.class));
+        verify(productService, times(2)).actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA);
+        verify(productService, never()).programarEliminacionImagen(any());
+    }
+
+    @Test
+    void crearConImagen_ShouldQueueUploadedImageWhenDatabaseWriteKeepsFailing() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+        when(cloudinaryService.uploadImage(any(File.class))).thenReturn("http://cloudinary.com/test.jpg");
+        when(productService.actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA))
+                .thenThrow(new RuntimeException("sin conexión"));
+
+        // Act
+        imageUploadService.crearConImagen(product, image);
+        tareas.forEach(Runnable::run);
+
+        // Assert: la imagen subida no queda huérfana en el proveedor
+        verify(cloudinaryService, times(1)).uploadImage(any(File.class));
+        verify(productService, times(3)).actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA);
+        verify(productService).programarEliminacionImagen("http://cloudinary.com/test.jpg");
+        verifyNoInteractions(miniaturaService);
+    }
+
+    @Test
+    void crearConImagen_ShouldNotScheduleUploadWhenCreateFails() {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenThrow(new RuntimeException("sin conexión"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> imageUploadService.crearConImagen(product, image));
+        assertTrue(tareas.isEmpty());
+    }
+
+
+    @Test
+    void actualizarConImagen_ShouldUploadUpdateAndScheduleThumbnails() throws IOException {
+        // Arrange
+        Product updates = new Product();
+        updates.setNombre("Nuevo nombre");
+        when(cloudinaryService.uploadImage(any(File.class))).thenReturn("http://cloudinary.com/new.jpg");
+        when(productService.updateProduct(eq(1L), any(Product.class))).thenAnswer(invocation -> invocation.getArgument(1));
+
+        // Act
+        Product result = imageUploadService.actualizarConImagen(1L, updates, image);
+
+        // Assert
+        assertEquals("http://cloudinary.com/new.jpg", result.getImagenUrl());
+        verify(productService).updateProduct(eq(1L), argThat(p -> "http://cloudinary.com/new.jpg".equals(p.getImagenUrl())));
+        // La imagen anterior la encola ProductService.updateProduct; aquí no se elimina nada
+        verify(cloudinaryService, never()).deleteImage(anyString());
+        verify(miniaturaService).programar(eq(1L), eq("http://cloudinary.com/new.jpg"), any());
+    }
+
+    @Test
+    void actualizarConImagen_ShouldKeepPreviousImageWhenUploadFails() throws IOException {
+        // Arrange
+        when(cloudinaryService.uploadImage(any(File.class))).thenThrow(new IOException("caído"));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> imageUploadService.actualizarConImagen(1L, new Product(), image));
+        verify(cloudinaryService, never()).deleteImage(anyString());
+        verify(productService, never()).updateProduct(anyLong(), any());
+        verifyNoInteractions(miniaturaService);
+    }
+
+
+    @Test
+    void actualizarConImagen_ShouldQueueUploadedImageWhenUpdateFails() throws IOException {
+        // Arrange
+        when(cloudinaryService.uploadImage(any(File.class))).thenReturn("http://cloudinary.com/new.jpg");
+        when(productService.updateProduct(eq(1L), any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> imageUploadService.actualizarConImagen(1L, new Product(), image));
+        verify(productService).programarEliminacionImagen("http://cloudinary.com/new.jpg");
+        verifyNoInteractions(miniaturaService);
+    }
+
+    @Test
+    void actualizarConImagen_ShouldRequireVersionBeforeUploading() {
+        // Arrange
+        Product updates = new Product();
+        updates.setCantidad(5);
+
+        // Act & Assert
+        assertThrows(VersionRequeridaException.class, () -> imageUploadService.actualizarConImagen(1L, updates, image));
+        verifyNoInteractions(cloudinaryService, productService, miniaturaService);
+    }
+
+
+    @Test
+    void crearConImagen_ShouldRejectAndRollBackProductWhenQueueIsFull() {
+        // Arrange
+        Product creado = new Product();
+        creado.setId(1L);
+        when(productService.createProduct(any(Product.class))).thenReturn(creado);
+        imageUploadService = new ImageUploadService(productService, cloudinaryService, miniaturaService,
+                tarea -> { throw new RejectedExecutionException("cola llena"); }, 3, 0);
+
+        // Act & Assert
+        assertThrows(SubidaRechazadaException.class, () -> imageUploadService.crearConImagen(product, image));
+        verify(productService).deleteProduct(1L);
+        verifyNoInteractions(cloudinaryService);
+    }
+
+
+    @Test
+    void crearConImagen_ShouldSkipThumbnailsWhenProductWasDeleted() throws IOException {
+        // Arrange
+        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
+            Product p = invocation.getArgument(0);
+            p.setId(1L);
+            return p;
+        });
+        when(cloudinaryService.uploadImage(any(File.class))).thenReturn("http://cloudinary.com/test.jpg");
+        when(productService.actualizarImagen(1L, "http://cloudinary.com/test.jpg", EstadoImagen.SUBIDA)).thenReturn(false);
+
+        // Act
+        imageUploadService.crearConImagen(product, image);
+        tareas.forEach(Runnable::run);
+
+        // Assert
+        verifyNoInteractions(miniaturaService);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.repository.CartItemRepository;
+import com.products.product.repository.JpaCartStore;
+import com.products.product.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+// Sin la transacción de cada prueba: H2 confirma la transacción en curso con cada ALTER TABLE
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaCartStoreMigracionTest {
+
+    private static final String INSERTAR = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?)";
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JpaCartStore store;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        store = new JpaCartStore(cartItemRepository, jdbcTemplate, new DatabasePlatform(dataSource), transactionManager);
+        Product product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setPrecio(50.0);
+        product.setCantidad(10);
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.migrarRestriccionUnica();
+        cartItemRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void migrarRestriccionUnica_ShouldMergeDuplicatesThenAddConstraint() {
+        // Arrange: esquema creado antes de la restricción, con líneas repetidas
+        jdbcTemplate.execute("ALTER TABLE cart_items DROP CONSTRAINT uk_cart_items_user_product");
+        jdbcTemplate.update(INSERTAR, "user1", productId, 2);
+        jdbcTemplate.update(INSERTAR, "user1", productId, 3);
+        jdbcTemplate.update(INSERTAR, "user1", productId, 1);
+        jdbcTemplate.update(INSERTAR, "user2", productId, 4);
+
+        // Act
+        int fusionadas = store.migrarRestriccionUnica();
+
+        // Assert
+        assertEquals(2, fusionadas);
+        assertEquals(Map.of(productId, 6), store.findCantidadesByUserId("user1"));
+        assertEquals(Map.of(productId, 4), store.findCantidadesByUserId("user2"));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(INSERTAR, "user1", productId, 1));
+    }
+
+    @Test
+    void migrarRestriccionUnica_ShouldDoNothingWhenConstraintExists() {
+        // Arrange
+        jdbcTemplate.update(INSERTAR, "user1", productId, 2);
+
+        // Act
+        int fusionadas = store.migrarRestriccionUnica();
+
+        // Assert
+        assertEquals(0, fusionadas);
+        assertEquals(Map.of(productId, 2), store.findCantidadesByUserId("user1"));
+    }
+
+    @Test
+    void migrarRestriccionUnica_ShouldSkipWhenAnotherInstanceAddedItWhileWaiting() {
+        // Arrange: la primera comprobación ve la restricción ausente, como una instancia que
+        // arrancó a la vez que otra que la crea antes de soltar el bloqueo
+        JdbcTemplate espia = spy(jdbcTemplate);
+        doReturn(0).doCallRealMethod().when(espia).queryForObject(anyString(), eq(Integer.class));
+        JpaCartStore otraInstancia = new JpaCartStore(cartItemRepository, espia, new DatabasePlatform(dataSource),
+                transactionManager);
+
+        // Act
+        int fusionadas = assertDoesNotThrow(otraInstancia::migrarRestriccionUnica);
+
+        // Assert
+        assertEquals(0, fusionadas);
+    }
+}
@@ -0,0 +1,281 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.dto.LineaCarrito;
+import com.products.product.entity.CartItem;
+import com.products.product.entity.Product;
+import com.products.product.repository.InMemoryHashKeyValueStore;
+import com.products.product.repository.KeyValueCartStore;
+import com.products.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KeyValueCartStoreTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private RelojManual reloj;
+    private InMemoryHashKeyValueStore hashes;
+    private KeyValueCartStore cartStore;
+    private Product product1;
+    private Product product2;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new RelojManual();
+        hashes = new InMemoryHashKeyValueStore(reloj);
+        cartStore = new KeyValueCartStore(hashes, productRepository, Duration.ofHours(1));
+
+        product1 = new Product();
+        product1.setId(1L);
+        product1.setNombre("Teclado");
+        product1.setPrecio(50.0);
+        product1.setCantidad(4);
+
+        product2 = new Product();
+        product2.setId(2L);
+        product2.setNombre("Mouse");
+        product2.setPrecio(20.0);
+        product2.setCantidad(9);
+    }
+
+    @Test
+    void save_ShouldStoreQuantitiesPerUser() {
+        // Arrange
+        cartStore.save(item("user1", product2, 1));
+        cartStore.save(item("user1", product1, 3));
+        cartStore.save(item("user2", product1, 7));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product2, product1));
+
+        // Act
+        List<CartItem> items = cartStore.findByUserId("user1");
+
+        // Assert
+        assertEquals(2, items.size());
+        assertEquals(1L, items.get(0).getProduct().getId());
+        assertEquals(3, items.get(0).getQuantity());
+        assertEquals(1, items.get(1).getQuantity());
+        verify(productRepository).findAllById(argThat(ids -> ids.spliterator().getExactSizeIfKnown() == 2));
+    }
+
+    @Test
+    void findByUserIdAndProductId_ShouldReturnNullWhenMissing() {
+        // Act
+        CartItem result = cartStore.findByUserIdAndProductId("user1", 1L);
+
+        // Assert
+        assertNull(result);
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void findByUserIdAndProductId_ShouldReturnStoredQuantity() {
+        // Arrange
+        cartStore.save(item("user1", product1, 3));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product1));
+
+        // Act
+        CartItem result = cartStore.findByUserIdAndProductId("user1", 1L);
+
+        // Assert
+        assertEquals(3, result.getQuantity());
+        assertEquals("user1", result.getUserId());
+    }
+
+    @Test
+    void findLineasByUserId_ShouldIncludeProductSnapshot() {
+        // Arrange
+        cartStore.save(item("user1", product1, 2));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product1));
+
+        // Act
+        List<LineaCarrito> lineas = cartStore.findLineasByUserId("user1");
+
+        // Assert
+        assertEquals(1, lineas.size());
+        assertEquals("Teclado", lineas.get(0).getNombre());
+        assertEquals(4, lineas.get(0).getStock());
+        assertEquals(2, lineas.get(0).getQuantity());
+    }
+
+    @Test
+    void deleteByUserIdAndProductId_ShouldRemoveOnlyThatProduct() {
+        // Arrange
+        cartStore.save(item("user1", product1, 2));
+        cartStore.save(item("user1", product2, 1));
+
+        // Act
+        cartStore.deleteByUserIdAndProductId("user1", 1L);
+
+        // Assert
+        assertNull(hashes.get("carrito:user1", "1"));
+        assertEquals("1", hashes.get("carrito:user1", "2"));
+    }
+
+    @Test
+    void cart_ShouldExpireAfterTtlWithoutActivity() {
+        // Arrange
+        cartStore.save(item("user1", product1, 2));
+        reloj.avanzar(Duration.ofMinutes(50));
+        cartStore.save(item("user1", product2, 1)); // Renueva la expiración
+
+        // Act
+        reloj.avanzar(Duration.ofMinutes(50));
+        boolean vivoTrasRenovar = !hashes.getAll("carrito:user1").isEmpty();
+        reloj.avanzar(Duration.ofMinutes(11));
+        hashes.purgarExpirados();
+
+        // Assert
+        assertTrue(vivoTrasRenovar);
+        assertTrue(hashes.getAll("carrito:user1").isEmpty());
+        assertTrue(cartStore.findByUserId("user1").isEmpty());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void agregar_ShouldAddWithinStockAndUndoWhenExceeded() {
+        // Arrange
+        when(productRepository.findCantidadById(1L)).thenReturn(Optional.of(4));
+        cartStore.agregar("user1", product1, 3);
+
+        // Act
+        CartItem sinStock = cartStore.agregar("user1", product1, 2);
+        CartItem completa = cartStore.agregar("user1", product1, 1);
+
+        // Assert
+        assertNull(sinStock);
+        assertEquals(4, completa.getQuantity());
+        assertEquals("4", hashes.get("carrito:user1", "1"));
+    }
+
+    @Test
+    void saveCantidades_ShouldKeepAddsMadeAfterReading() {
+        // Arrange
+        cartStore.save(item("user1", product1, 1));
+        Map<Long, Integer> leidas = cartStore.bloquearCantidades("user1");
+        when(productRepository.findCantidadById(anyLong())).thenReturn(Optional.of(9));
+        cartStore.agregar("user1", product1, 1);
+        cartStore.agregar("user1", product2, 2);
+
+        // Act: el cambio calculado sobre lo leído lleva el producto 1 a 3 y añade 4 del producto 2
+        cartStore.saveCantidades("user1", leidas, Map.of(1L, 3, 2L, 4), Set.of());
+
+        // Assert: los agregados concurrentes se suman en lugar de perderse
+        assertEquals(Map.of(1L, 4, 2L, 6), cartStore.findCantidadesByUserId("user1"));
+    }
+
+    @Test
+    void agregar_ShouldTreatUndoneNewLineAsMissing() {
+        // Arrange
+        when(productRepository.findCantidadById(1L)).thenReturn(Optional.of(4));
+
+        // Act
+        CartItem sinStock = cartStore.agregar("user1", product1, 5);
+
+        // Assert
+        assertNull(sinStock);
+        assertNull(cartStore.findByUserIdAndProductId("user1", 1L));
+        assertTrue(cartStore.findCantidadesByUserId("user1").isEmpty());
+    }
+
+    @Test
+    void agregar_ShouldExpireCartCreatedByRejectedAdd() {
+        // Arrange
+        when(productRepository.findCantidadById(1L)).thenReturn(Optional.of(4));
+        cartStore.agregar("user1", product1, 5);
+
+        // Act
+        reloj.avanzar(Duration.ofMinutes(61));
+        hashes.purgarExpirados();
+
+        // Assert
+        assertTrue(hashes.getAll("carrito:user1").isEmpty());
+    }
+
+    @Test
+    void agregar_ShouldNeverExceedStockUnderConcurrentAdds() throws Exception {
+        // Arrange
+        when(productRepository.findCantidadById(2L)).thenReturn(Optional.of(9));
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<CartItem>> tareas = new ArrayList<>();
+
+        // Act: 40 peticiones de una unidad sobre un stock de 9
+        for (int i = 0; i < 40; i++) {
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                return cartStore.agregar("user1", product2, 1);
+            }));
+        }
+        salida.countDown();
+        int aceptadas = 0;
+        try {
+            for (Future<CartItem> tarea : tareas) {
+                if (tarea.get() != null) {
+                    aceptadas++;
+                }
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        // Assert
+        assertEquals(9, aceptadas);
+        assertEquals("9", hashes.get("carrito:user1", "2"));
+    }
+
+    private CartItem item(String userId, Product product, int quantity) {
+        CartItem item = new CartItem();
+        item.setUserId(userId);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static class RelojManual extends Clock {
+        private Instant ahora = Instant.parse("2024-01-01T00:00:00Z");
+
+        void avanzar(Duration duracion) {
+            ahora = ahora.plus(duracion);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.repository.LocalImageStore;
+import com.products.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocalImageStoreTest {
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @TempDir
+    Path directorio;
+
+    @TempDir
+    Path subidas;
+
+    private LocalImageStore store;
+
+    private Instant ahora = Instant.parse("2024-05-01T10:00:00Z");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Clock reloj = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zona) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return ahora;
+            }
+        };
+        store = new LocalImageStore(productRepository, directorio.toString(), "/imagenes", Duration.ofMinutes(15), reloj);
+    }
+
+    @Test
+    void guardar_ShouldNameFileByContentHashAndCopyIt() throws IOException {
+        // Arrange
+        Path imagen = escribir("a.img", JPEG);
+
+        // Act
+        String url = store.guardar(imagen.toFile());
+
+        // Assert
+        assertTrue(url.matches("/imagenes/[0-9a-f]{64}\\.jpg"), url);
+        Path guardada = directorio.resolve(url.substring("/imagenes/".length()));
+        assertArrayEquals(JPEG, Files.readAllBytes(guardada));
+        assertTrue(Files.exists(imagen));
+    }
+
+    @Test
+    void guardar_ShouldDeduplicateIdenticalContent() throws IOException {
+        // Arrange
+        Path primera = escribir("a.img", JPEG);
+        Path segunda = escribir("b.img", JPEG);
+        Path distinta = escribir("c.img", new byte[]{1, 2, 3});
+
+        // Act
+        String url1 = store.guardar(primera.toFile());
+        String url2 = store.guardar(segunda.toFile());
+        String url3 = store.guardar(distinta.toFile());
+
+        // Assert
+        assertEquals(url1, url2);
+        assertNotEquals(url1, url3);
+        assertTrue(url3.endsWith(".img"));
+        assertEquals(2, ficheros());
+    }
+
+    @Test
+    void eliminar_ShouldDeleteFileWhenNoProductUsesIt() throws IOException {
+        // Arrange
+        String url = store.guardar(escribir("a.img", JPEG).toFile());
+        ahora = ahora.plus(Duration.ofMinutes(16));
+        when(productRepository.contarReferenciasImagen(url)).thenReturn(0L);
+
+        // Act
+        store.eliminar(url);
+
+        // Assert
+        assertEquals(0, ficheros());
+    }
+
+    @Test
+    void eliminar_ShouldRetryLaterWhenFileWasJustReused() throws IOException {
+        // Arrange: el fichero de un producto eliminado se reutiliza antes de que el outbox lo borre
+        String url = store.guardar(escribir("a.img", JPEG).toFile());
+        ahora = ahora.plus(Duration.ofMinutes(20));
+        store.guardar(escribir("b.img", JPEG).toFile());
+        ahora = ahora.plus(Duration.ofMinutes(1));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> store.eliminar(url));
+        assertEquals(1, ficheros());
+        verify(productRepository, never()).contarReferenciasImagen(anyString());
+    }
+
+    @Test
+    void eliminar_ShouldKeepFileSharedByOtherProducts() throws IOException {
+        // Arrange
+        String url = store.guardar(escribir("a.img", JPEG).toFile());
+        ahora = ahora.plus(Duration.ofMinutes(16));
+        when(productRepository.contarReferenciasImagen(url)).thenReturn(1L);
+
+        // Act
+        store.eliminar(url);
+
+        // Assert
+        assertEquals(1, ficheros());
+    }
+
+    @Test
+    void eliminar_ShouldIgnoreUrlsFromOtherStores() throws IOException {
+        // Act
+        store.eliminar("http://res.cloudinary.com/demo/image/upload/v1/producto.jpg");
+        store.eliminar("/imagenes/../../etc/passwd");
+
+        // Assert
+        verify(productRepository, never()).contarReferenciasImagen(anyString());
+    }
+
+    private Path escribir(String nombre, byte[] contenido) throws IOException {
+        return Files.write(subidas.resolve(nombre), contenido);
+    }
+
+    private long ficheros() throws IOException {
+        try (Stream<Path> contenido = Files.list(directorio)) {
+            return contenido.count();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.MetricasConfig;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({MetricasConfig.class, SimpleMeterRegistry.class})
+class MetricasConfigTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void repositorio_ShouldRecordQueryTimerPerMethod() {
+        // Arrange
+        Product product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setPrecio(50.0);
+        product.setCantidad(3);
+        productRepository.save(product);
+
+        // Act
+        productRepository.findByNombreContainingIgnoreCase("teclado");
+        productRepository.findByNombreContainingIgnoreCase("mouse");
+
+        // Assert
+        Timer timer = meterRegistry.get(MetricasConfig.CONSULTAS)
+                .tag("repositorio", "ProductRepository")
+                .tag("metodo", "findByNombreContainingIgnoreCase")
+                .tag("estado", "success")
+                .timer();
+        assertEquals(2, timer.count());
+        assertNotNull(meterRegistry.find(MetricasConfig.CONSULTAS).tag("metodo", "save").timer());
+    }
+}
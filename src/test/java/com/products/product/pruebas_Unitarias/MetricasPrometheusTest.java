@@ -0,0 +1,80 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Contexto completo con el registro de Prometheus: comprueba que @Timed en los servicios y el
+ * listener de repositorios llegan al scrape con los cubos SLO de application.yml
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metricas;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false",
+        "spring.boot.admin.client.enabled=false",
+        "imagenes.store=local",
+        "imagenes.local.directorio=${java.io.tmpdir}/metricas-imagenes",
+        "logging.level.root=WARN",
+        "logging.level.com.products.product=WARN"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricasPrometheusTest {
+
+    // productos.servicio: 1ms,5ms,10ms,25ms,50ms,100ms,250ms,1s
+    private static final List<String> CUBOS_SERVICIO = List.of("0.001", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "1.0");
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheus_ShouldExposeServiceTimersWithSloBuckets() throws Exception {
+        // Arrange
+        Product product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setPrecio(50.0);
+        product.setCantidad(3);
+        Long id = productService.createProduct(product).getId();
+
+        // Act
+        productService.obtenerStock(id);
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert
+        String serie = "productos_servicio_seconds_bucket{class=\"com.products.product.service.ProductService\","
+                + "exception=\"none\",method=\"obtenerStock\",";
+        for (String cubo : CUBOS_SERVICIO) {
+            assertTrue(scrape.contains(serie + "le=\"" + cubo + "\""), "Falta el cubo " + cubo + " de obtenerStock");
+        }
+        assertTrue(scrape.contains("productos_servicio_seconds_count{class=\"com.products.product.service.ProductService\","
+                + "exception=\"none\",method=\"obtenerStock\",} 1.0"));
+        // Sin percentiles configurados solo se exportan los cubos SLO, más +Inf
+        assertFalse(scrape.contains(serie + "le=\"0.002\""));
+        assertTrue(scrape.contains("productos_consultas_seconds_bucket{estado=\"success\",metodo=\"save\","
+                + "repositorio=\"ProductRepository\",le=\"0.25\",}"));
+    }
+}
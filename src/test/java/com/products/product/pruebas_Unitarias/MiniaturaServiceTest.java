@@ -0,0 +1,139 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.service.CloudinaryService;
+import com.products.product.service.MiniaturaService;
+import com.products.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MiniaturaServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CloudinaryService cloudinaryService;
+
+    @TempDir
+    Path directorio;
+
+    private MiniaturaService miniaturaService;
+    private final List<String> dimensiones = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Las tareas se ejecutan en el mismo hilo
+        miniaturaService = new MiniaturaService(productService, cloudinaryService, Runnable::run, 0.8f);
+    }
+
+    @Test
+    void programar_ShouldGenerateJpegVariantsAndAssignThem() throws IOException {
+        // Arrange
+        Path original = imagen(1600, 800, "png");
+        guardarRegistrandoDimensiones();
+        when(productService.actualizarMiniaturas(anyLong(), anyString(), anyString(), anyString(), anyString())).thenReturn(true);
+
+        // Act
+        miniaturaService.programar(1L, "http://cloudinary.com/original.png", original);
+
+        // Assert
+        assertEquals(List.of("640x320", "320x160", "160x80"), dimensiones);
+        verify(productService).actualizarMiniaturas(1L, "http://cloudinary.com/original.png",
+                "http://cloudinary.com/m3.jpg", "http://cloudinary.com/m2.jpg", "http://cloudinary.com/m1.jpg");
+        verify(cloudinaryService, never()).deleteImage(anyString());
+        assertTrue(Files.exists(original));
+    }
+
+    @Test
+    void programar_ShouldNotUpscaleSmallImages() throws IOException {
+        // Arrange
+        Path original = imagen(200, 100, "jpg");
+        guardarRegistrandoDimensiones();
+        when(productService.actualizarMiniaturas(anyLong(), anyString(), anyString(), anyString(), anyString())).thenReturn(true);
+
+        // Act
+        miniaturaService.programar(1L, "http://cloudinary.com/original.jpg", original);
+
+        // Assert
+        assertEquals(List.of("200x100", "200x100", "160x80"), dimensiones);
+    }
+
+    @Test
+    void programar_ShouldDeleteVariantsWhenImageChangedMeanwhile() throws IOException {
+        // Arrange
+        Path original = imagen(800, 800, "png");
+        guardarRegistrandoDimensiones();
+        when(productService.actualizarMiniaturas(anyLong(), anyString(), anyString(), anyString(), anyString())).thenReturn(false);
+
+        // Act
+        miniaturaService.programar(1L, "http://cloudinary.com/original.png", original);
+
+        // Assert
+        verify(cloudinaryService).deleteImage("http://cloudinary.com/m1.jpg");
+        verify(cloudinaryService).deleteImage("http://cloudinary.com/m2.jpg");
+        verify(cloudinaryService).deleteImage("http://cloudinary.com/m3.jpg");
+    }
+
+    @Test
+    void programar_ShouldSkipUnsupportedFormats() throws IOException {
+        // Arrange
+        Path original = Files.write(directorio.resolve("original.img"), "no es una imagen".getBytes());
+
+        // Act
+        miniaturaService.programar(1L, "http://cloudinary.com/original.img", original);
+
+        // Assert
+        verifyNoInteractions(cloudinaryService, productService);
+    }
+
+    private void guardarRegistrandoDimensiones() throws IOException {
+        when(cloudinaryService.uploadImage(any(File.class))).thenAnswer(invocation -> {
+            BufferedImage jpeg = ImageIO.read((File) invocation.getArgument(0));
+            dimensiones.add(jpeg.getWidth() + "x" + jpeg.getHeight());
+            return "http://cloudinary.com/m" + dimensiones.size() + ".jpg";
+        });
+    }
+
+    private Path imagen(int ancho, int alto, String formato) throws IOException {
+        BufferedImage imagen = new BufferedImage(ancho, alto, "png".equals(formato)
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Path fichero = directorio.resolve("original." + formato);
+        ImageIO.write(imagen, formato, fichero.toFile());
+        return fichero;
+    }
+
+
+    @Test
+    void programar_ShouldDropTaskWhenQueueIsFull() throws IOException {
+        // Arrange
+        Path original = imagen(1600, 800, "png");
+        miniaturaService = new MiniaturaService(productService, cloudinaryService,
+                tarea -> { throw new RejectedExecutionException("cola llena"); }, 0.8f);
+
+        // Act
+        miniaturaService.programar(1L, "http://cloudinary.com/original.png", original);
+
+        // Assert
+        verifyNoInteractions(cloudinaryService, productService);
+        assertTrue(Files.exists(original));
+    }
+}
\ No newline at end of file
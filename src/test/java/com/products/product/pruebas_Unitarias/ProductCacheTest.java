@@ -0,0 +1,154 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.products.product.config.CacheConfig;
+import com.products.product.config.DatabasePlatform;
+import com.products.product.dto.ReservaStockItem;
+import com.products.product.entity.Product;
+import com.products.product.repository.ImageDeletionRepository;
+import com.products.product.repository.ProductRepository;
+import com.products.product.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(classes = {CacheConfig.class, ProductService.class, SimpleMeterRegistry.class})
+class ProductCacheTest {
+
+    @MockBean
+    private ProductRepository productRepository;
+
+    @MockBean
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private DatabasePlatform databasePlatform;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Product testProduct;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.PRODUCTOS).clear();
+        testProduct = new Product();
+        testProduct.setId(1L);
+        testProduct.setNombre("Test Product");
+        testProduct.setCantidad(10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+    }
+
+    @Test
+    void getProductById_ShouldHitCacheOnRepeatedReads() {
+        // Arrange
+        CacheStats antes = nativeCache().stats();
+
+        // Act
+        productService.getProductById(1L);
+        productService.getProductById(1L);
+        productService.getProductById(1L);
+
+        // Assert
+        verify(productRepository, times(1)).findById(1L);
+        CacheStats stats = nativeCache().stats().minus(antes);
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void getProductById_ShouldNotShareInstancesBetweenCallers() {
+        // Act
+        Product primero = productService.getProductById(1L);
+        primero.setCantidad(0);
+        testProduct.setNombre("Cambiado en la entidad gestionada");
+        Product segundo = productService.getProductById(1L);
+
+        // Assert
+        assertNotSame(testProduct, primero);
+        assertNotSame(primero, segundo);
+        assertEquals(10, segundo.getCantidad());
+        assertEquals("Test Product", segundo.getNombre());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getProductById_ShouldNotCacheMissingProducts() {
+        // Arrange
+        when(productRepository.findById(2L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> productService.getProductById(2L));
+        assertThrows(RuntimeException.class, () -> productService.getProductById(2L));
+        verify(productRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void stockChanges_ShouldEvictOnlyTheAffectedProduct() {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setCantidad(5);
+        when(productRepository.findById(2L)).thenReturn(Optional.of(product2));
+        when(productRepository.descontarStock(1L, 1)).thenReturn(1);
+        productService.getProductById(1L);
+        productService.getProductById(2L);
+
+        // Act
+        productService.actualizarStock(1L, -1);
+        productService.getProductById(1L);
+        productService.getProductById(2L);
+
+        // Assert
+        verify(productRepository, times(2)).findById(1L);
+        verify(productRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void writes_ShouldEvictCachedProduct() {
+        // Arrange
+        when(productRepository.incrementarStock(1L, 2)).thenReturn(1);
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(List.of(testProduct));
+
+        // Act & Assert: cada escritura obliga a recargar el producto
+        productService.getProductById(1L);
+        productService.revertirStock(1L, 2);
+        productService.getProductById(1L);
+        productService.updateProduct(1L, new Product());
+        productService.getProductById(1L);
+        productService.reservarStock(List.of(new ReservaStockItem(1L, 1)));
+        productService.getProductById(1L);
+        productService.deleteProduct(1L);
+        productService.getProductById(1L);
+
+        // findById: 5 lecturas + 1 de updateProduct + 1 de deleteProduct
+        verify(productRepository, times(7)).findById(1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache() {
+        TransactionAwareCacheDecorator decorator = (TransactionAwareCacheDecorator) cacheManager.getCache(CacheConfig.PRODUCTOS);
+        return ((CaffeineCache) decorator.getTargetCache()).getNativeCache();
+    }
+}
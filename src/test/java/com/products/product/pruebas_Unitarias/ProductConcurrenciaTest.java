@@ -0,0 +1,188 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.CacheConfig;
+import com.products.product.config.DatabasePlatform;
+import com.products.product.config.MetricasConfig;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import com.products.product.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sin la transacción de cada prueba: los hilos deben confirmar por separado para competir
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductService.class, CacheConfig.class, DatabasePlatform.class, SimpleMeterRegistry.class})
+class ProductConcurrenciaTest {
+
+    private static final int HILOS = 4;
+    private static final int OPERACIONES = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setPrecio(50.0);
+        product.setCantidad(10_000);
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void updateProduct_ShouldNotLoseConcurrentStockChanges() throws Exception {
+        // Arrange
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS * 2);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        AtomicInteger ediciones = new AtomicInteger();
+
+        // Act: la mitad de los hilos edita el producto, la otra mitad descuenta stock
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < OPERACIONES; i++) {
+                    Product updates = new Product();
+                    updates.setDescripcion("Edición " + hilo + "-" + i);
+                    updates.setPrecio(50.0 + i);
+                    try {
+                        productService.updateProduct(productId, updates);
+                        ediciones.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        // Intentos agotados: la edición se rechaza entera, sin pisar nada
+                    }
+                }
+                return null;
+            }));
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < OPERACIONES; i++) {
+                    productService.actualizarStock(productId, -1);
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        // Assert
+        Product final_ = productRepository.findById(productId).orElseThrow();
+        assertEquals(10_000 - HILOS * OPERACIONES, final_.getCantidad());
+        // Cada escritura confirmada, de la entidad o por sentencia, incrementa la versión una vez
+        assertEquals((long) HILOS * OPERACIONES + ediciones.get(), final_.getVersion());
+        assertTrue(ediciones.get() > 0);
+        assertEquals(HILOS * OPERACIONES - ediciones.get(),
+                meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "agotado").count());
+    }
+
+    @Test
+    void updateProduct_ShouldNotClobberConcurrentDecrementsWhenSettingCantidad() throws Exception {
+        // Arrange
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS + 1);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        AtomicInteger reposiciones = new AtomicInteger();
+
+        // Act: un hilo repone stock leyendo la cantidad y fijando cantidad + 100, el resto descuenta
+        tareas.add(hilos.submit(() -> {
+            salida.await();
+            for (int i = 0; i < OPERACIONES * 2; i++) {
+                Product leido = productRepository.findById(productId).orElseThrow();
+                Product updates = new Product();
+                updates.setCantidad(leido.getCantidad() + 100);
+                updates.setVersion(leido.getVersion());
+                try {
+                    productService.updateProduct(productId, updates);
+                    reposiciones.incrementAndGet();
+                } catch (OptimisticLockingFailureException e) {
+                    // El stock cambió desde la lectura: la reposición se rechaza sin pisarlo
+                }
+            }
+            return null;
+        }));
+        for (int h = 0; h < HILOS; h++) {
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; i < OPERACIONES; i++) {
+                    productService.actualizarStock(productId, -1);
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        // Assert: ninguna reposición se aplicó sobre un stock distinto del que leyó
+        Product final_ = productRepository.findById(productId).orElseThrow();
+        assertTrue(reposiciones.get() > 0);
+        assertEquals(10_000 - HILOS * OPERACIONES + 100 * reposiciones.get(), final_.getCantidad());
+    }
+
+    @Test
+    void updateProduct_ShouldRejectEditBasedOnStaleVersion() {
+        // Arrange
+        Long leida = productRepository.findById(productId).orElseThrow().getVersion();
+        productService.actualizarStock(productId, -3);
+
+        Product updates = new Product();
+        updates.setVersion(leida);
+        updates.setCantidad(500);
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> productService.updateProduct(productId, updates));
+        Product actual = productRepository.findById(productId).orElseThrow();
+        assertEquals(9_997, actual.getCantidad());
+        assertEquals(leida + 1, actual.getVersion());
+    }
+}
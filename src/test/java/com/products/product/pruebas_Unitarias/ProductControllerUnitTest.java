@@ -2,9 +2,17 @@ package com.products.product.pruebas_Unitarias;
 
 
 import com.products.product.controller.ProductController;
+import com.products.product.dto.CursorPage;
+import com.products.product.dto.DisponibilidadProducto;
+import com.products.product.dto.FiltroProductos;
+import com.products.product.dto.ReservaStockItem;
+import com.products.product.entity.EstadoImagen;
 import com.products.product.entity.Product;
 import com.products.product.entity.Categoria;
+import com.products.product.exception.StockInsuficienteException;
 import com.products.product.service.CloudinaryService;
+import com.products.product.service.ImageUploadService;
+import com.products.product.service.ProductSearchService;
 import com.products.product.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,7 +34,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
-class ProductControllerTestUn {
+class ProductControllerUnitTest {
 
     @Mock
     private ProductService productService;
@@ -34,6 +42,12 @@ class ProductControllerTestUn {
     @Mock
     private CloudinaryService cloudinaryService;
 
+    @Mock
+    private ProductSearchService productSearchService;
+
+    @Mock
+    private ImageUploadService imageUploadService;
+
     @InjectMocks
     private ProductController productController;
 
@@ -65,22 +79,13 @@ class ProductControllerTestUn {
         // Arrange
         String productJson = "{\"nombre\":\"Test Product\",\"categoria\":\"ELECTRONICA\",\"precio\":999.99,\"cantidad\":10,\"descripcion\":\"Test Description\"}";
         MockMultipartFile image = new MockMultipartFile("image", "test.jpg", "image/jpeg", "test image content".getBytes());
-        String imageUrl = "http://cloudinary.com/test.jpg";
 
-        // Configurar el producto que se espera que se cree
-        Product productWithImage = new Product();
-        productWithImage.setId(1L);
-        productWithImage.setNombre("Test Product");
-        productWithImage.setImagenUrl(imageUrl); // Asegurar que la URL está incluida
-
-        when(cloudinaryService.uploadImage(any(MultipartFile.class))).thenReturn(imageUrl);
-
-        // Aquí está el cambio clave: debemos asegurarnos de que el mock devuelva el producto con la URL
-        when(productService.createProduct(any(Product.class))).thenAnswer(invocation -> {
-            Product p = invocation.getArgument(0);
-            p.setImagenUrl(imageUrl); // Establecer la URL en el producto
-            return productWithImage;
-        });
+        // La imagen se sube en segundo plano: el producto vuelve sin URL y con la subida pendiente
+        Product pendingProduct = new Product();
+        pendingProduct.setId(1L);
+        pendingProduct.setNombre("Test Product");
+        pendingProduct.setEstadoImagen(EstadoImagen.PENDIENTE);
+        when(imageUploadService.crearConImagen(any(Product.class), eq(image))).thenReturn(pendingProduct);
 
         // Act
         Product result = productController.createProduct(productJson, image);
@@ -88,9 +93,10 @@ class ProductControllerTestUn {
         // Assert
         assertNotNull(result);
         assertEquals(testProduct.getId(), result.getId());
-        assertEquals(imageUrl, result.getImagenUrl()); // Esta aserción debería pasar ahora
-        verify(cloudinaryService).uploadImage(any(MultipartFile.class));
-        verify(productService).createProduct(any(Product.class));
+        assertNull(result.getImagenUrl());
+        assertEquals(EstadoImagen.PENDIENTE, result.getEstadoImagen());
+        verify(cloudinaryService, never()).uploadImage(any(MultipartFile.class));
+        verify(productService, never()).createProduct(any(Product.class));
     }
 
     @Test
@@ -107,8 +113,9 @@ class ProductControllerTestUn {
         assertNotNull(result);
         assertEquals(testProduct.getId(), result.getId());
         assertNull(result.getImagenUrl());
-        verify(cloudinaryService, never()).uploadImage(any());
-        verify(productService).createProduct(any(Product.class));
+        verify(cloudinaryService, never()).uploadImage(any(MultipartFile.class));
+        verify(imageUploadService, never()).crearConImagen(any(), any());
+        verify(productService).createProduct(argThat(p -> p.getEstadoImagen() == EstadoImagen.SIN_IMAGEN));
     }
 
     @Test
@@ -120,21 +127,14 @@ class ProductControllerTestUn {
         updates.setCantidad(15);
 
         MockMultipartFile image = new MockMultipartFile("image", "test.jpg", "image/jpeg", "test image content".getBytes());
-        String oldImageUrl = "http://cloudinary.com/old.jpg";
         String newImageUrl = "http://cloudinary.com/new.jpg";
 
-        Product existingProduct = new Product();
-        existingProduct.setImagenUrl(oldImageUrl);
+        Product updatedProduct = new Product();
+        updatedProduct.setNombre("Updated Product");
+        updatedProduct.setCantidad(15);
+        updatedProduct.setImagenUrl(newImageUrl);
 
-        when(productService.getProductById(productId)).thenReturn(existingProduct);
-        when(cloudinaryService.uploadImage(any(MultipartFile.class))).thenReturn(newImageUrl);
-        when(productService.updateProduct(eq(productId), any(Product.class))).thenAnswer(invocation -> {
-            Product p = invocation.getArgument(1);
-            existingProduct.setNombre(p.getNombre());
-            existingProduct.setCantidad(p.getCantidad());
-            existingProduct.setImagenUrl(p.getImagenUrl());
-            return existingProduct;
-        });
+        when(imageUploadService.actualizarConImagen(productId, updates, image)).thenReturn(updatedProduct);
 
         // Act
         Product result = productController.updateProduct(productId, updates, image);
@@ -144,9 +144,8 @@ class ProductControllerTestUn {
         assertEquals("Updated Product", result.getNombre());
         assertEquals(15, result.getCantidad());
         assertEquals(newImageUrl, result.getImagenUrl());
-        verify(cloudinaryService).deleteImage(oldImageUrl);
-        verify(cloudinaryService).uploadImage(image);
-        verify(productService).updateProduct(eq(productId), any(Product.class));
+        verify(imageUploadService).actualizarConImagen(productId, updates, image);
+        verify(productService, never()).updateProduct(anyLong(), any(Product.class));
     }
 
     @Test
@@ -176,47 +175,33 @@ class ProductControllerTestUn {
         assertEquals(15, result.getCantidad());
         assertEquals("http://cloudinary.com/existing.jpg", result.getImagenUrl());
         verify(cloudinaryService, never()).deleteImage(any());
-        verify(cloudinaryService, never()).uploadImage(any());
+        verify(cloudinaryService, never()).uploadImage(any(MultipartFile.class));
         verify(productService).updateProduct(eq(productId), any(Product.class));
     }
 
     @Test
-    void deleteProduct_WithImage_ShouldDeleteProductAndImage() throws IOException {
+    void deleteProduct_ShouldDeleteProductWithoutWaitingForImageStore() throws IOException {
         // Arrange
         Long productId = 1L;
-        Product product = new Product();
-        product.setImagenUrl("http://cloudinary.com/test.jpg");
-
-        when(productService.getProductById(productId)).thenReturn(product);
-        doNothing().when(cloudinaryService).deleteImage(anyString());
         doNothing().when(productService).deleteProduct(productId);
 
         // Act
         productController.deleteProduct(productId);
 
         // Assert
-        verify(productService).getProductById(productId);
-        verify(cloudinaryService).deleteImage("http://cloudinary.com/test.jpg");
         verify(productService).deleteProduct(productId);
+        verifyNoInteractions(cloudinaryService);
     }
 
     @Test
-    void deleteProduct_WithoutImage_ShouldDeleteProductOnly() throws IOException {
+    void deleteProduct_WhenNotFound_ShouldPropagateError() {
         // Arrange
         Long productId = 1L;
-        Product product = new Product();
-        product.setImagenUrl(null);
-
-        when(productService.getProductById(productId)).thenReturn(product);
-        doNothing().when(productService).deleteProduct(productId);
-
-        // Act
-        productController.deleteProduct(productId);
+        doThrow(new RuntimeException("Producto no encontrado con ID: 1")).when(productService).deleteProduct(productId);
 
-        // Assert
-        verify(productService).getProductById(productId);
-        verify(cloudinaryService, never()).deleteImage(any());
-        verify(productService).deleteProduct(productId);
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> productController.deleteProduct(productId));
+        verifyNoInteractions(cloudinaryService);
     }
 
     @Test
@@ -255,16 +240,17 @@ class ProductControllerTestUn {
     void findByNombre_ShouldReturnMatchingProducts() {
         // Arrange
         String searchTerm = "Test";
-        when(productService.findByNombre(searchTerm)).thenReturn(List.of(testProduct));
+        when(productSearchService.buscar(searchTerm, null, null)).thenReturn(List.of(testProduct));
 
         // Act
-        List<Product> result = productController.findByNombre(searchTerm);
+        List<Product> result = productController.findByNombre(searchTerm, null, null);
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("Test Product", result.get(0).getNombre());
-        verify(productService).findByNombre(searchTerm);
+        verify(productSearchService).buscar(searchTerm, null, null);
+        verify(productService, never()).findByNombre(any());
     }
 
     @Test
@@ -305,8 +291,8 @@ class ProductControllerTestUn {
         // Arrange
         Long productId = 1L;
         Integer cantidad = 5;
-        when(productService.verificarDisponibilidad(productId, cantidad)).thenReturn(true);
-        when(productService.getProductById(productId)).thenReturn(testProduct);
+        when(productService.consultarDisponibilidad(productId, cantidad))
+                .thenReturn(new DisponibilidadProducto(productId, cantidad, 10, true));
 
         // Act
         ResponseEntity<Map<String, Object>> response = productController.verificarDisponibilidad(productId, cantidad);
@@ -318,7 +304,38 @@ class ProductControllerTestUn {
         assertNotNull(result);
         assertTrue((Boolean) result.get("disponible"));
         assertEquals(10, result.get("stockActual"));
-        verify(productService).verificarDisponibilidad(productId, cantidad);
+        verify(productService).consultarDisponibilidad(productId, cantidad);
+        verify(productService, never()).getProductById(any());
+    }
+
+    @Test
+    void verificarDisponibilidad_Bulk_ShouldReturnAvailabilityPerProduct() {
+        // Arrange
+        List<Long> ids = List.of(1L, 2L);
+        List<Integer> cantidades = List.of(5, 9);
+        List<DisponibilidadProducto> disponibilidad = List.of(
+                new DisponibilidadProducto(1L, 5, 10, true),
+                new DisponibilidadProducto(2L, 9, 5, false));
+        when(productService.verificarDisponibilidad(ids, cantidades)).thenReturn(disponibilidad);
+
+        // Act
+        ResponseEntity<List<DisponibilidadProducto>> response = productController.verificarDisponibilidad(ids, cantidades);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(disponibilidad, response.getBody());
+    }
+
+    @Test
+    void verificarDisponibilidad_Bulk_ShouldReturnBadRequestWhenListsMismatch() {
+        // Arrange
+        when(productService.verificarDisponibilidad(List.of(1L), List.of())).thenThrow(new IllegalArgumentException("x"));
+
+        // Act
+        ResponseEntity<List<DisponibilidadProducto>> response = productController.verificarDisponibilidad(List.of(1L), List.of());
+
+        // Assert
+        assertEquals(400, response.getStatusCodeValue());
     }
 
     @Test
@@ -326,7 +343,7 @@ class ProductControllerTestUn {
         // Arrange
         Long productId = 1L;
         Integer cantidad = 15;
-        when(productService.getProductById(productId)).thenReturn(testProduct);
+        when(productService.obtenerStock(productId)).thenReturn(15);
 
         // Act
         ResponseEntity<Map<String, Object>> response = productController.actualizarStock(productId, Map.of("cantidad", cantidad));
@@ -337,6 +354,7 @@ class ProductControllerTestUn {
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(result);
         assertEquals("Stock actualizado correctamente", result.get("mensaje"));
+        assertEquals(15, result.get("stockActual"));
         verify(productService).actualizarStock(productId, cantidad);
     }
 
@@ -345,7 +363,7 @@ class ProductControllerTestUn {
         // Arrange
         Long productId = 1L;
         Integer cantidad = 5;
-        when(productService.getProductById(productId)).thenReturn(testProduct);
+        when(productService.obtenerStock(productId)).thenReturn(15);
 
         // Act
         ResponseEntity<Map<String, Object>> response = productController.revertirStock(productId, Map.of("cantidad", cantidad));
@@ -358,4 +376,118 @@ class ProductControllerTestUn {
         assertEquals("Stock revertido correctamente", result.get("mensaje"));
         verify(productService).revertirStock(productId, cantidad);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findPage_ShouldReturnPage() {
+        // Arrange
+        CursorPage<Product> page = new CursorPage<>(productList, "Mg");
+        when(productService.findPage(null, 2)).thenReturn(page);
+
+        // Act
+        ResponseEntity<CursorPage<Product>> response = productController.findPage(null, 2);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, response.getBody().getItems().size());
+        assertEquals("Mg", response.getBody().getNext());
+    }
+
+    @Test
+    void findPage_ShouldReturnBadRequestWhenCursorInvalid() {
+        // Arrange
+        when(productService.findPage("x", null)).thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        // Act
+        ResponseEntity<CursorPage<Product>> response = productController.findPage("x", null);
+
+        // Assert
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    void reservarStock_ShouldReturnResultingStock() {
+        // Arrange
+        List<ReservaStockItem> items = List.of(new ReservaStockItem(1L, 2));
+        when(productService.reservarStock(items)).thenReturn(Map.of(1L, 8));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = productController.reservarStock(items);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(Map.of(1L, 8), response.getBody().get("stockActual"));
+        verify(productService, never()).getProductById(any());
+    }
+
+    @Test
+    void reservarStock_ShouldReturnConflictWhenNotEnoughStock() {
+        // Arrange
+        List<ReservaStockItem> items = List.of(new ReservaStockItem(1L, 20));
+        when(productService.reservarStock(items)).thenThrow(new StockInsuficienteException(1L));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = productController.reservarStock(items);
+
+        // Assert
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals(1L, response.getBody().get("productId"));
+    }
+
+    @Test
+    void search_ShouldReturnFilteredPage() {
+        // Arrange
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategoria(Categoria.ELECTRONICA);
+        filtro.setSoloDisponibles(true);
+        when(productService.buscarConFiltros(filtro)).thenReturn(new CursorPage<>(productList, null));
+
+        // Act
+        ResponseEntity<CursorPage<Product>> response = productController.search(filtro);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, response.getBody().getItems().size());
+        assertNull(response.getBody().getNext());
+    }
+
+    @Test
+    void search_ShouldReturnBadRequestWhenFilterInvalid() {
+        // Arrange
+        FiltroProductos filtro = new FiltroProductos();
+        when(productService.buscarConFiltros(filtro)).thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        // Act
+        ResponseEntity<CursorPage<Product>> response = productController.search(filtro);
+
+        // Assert
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    void getEstadoImagen_ShouldReturnUploadState() {
+        // Arrange
+        testProduct.setEstadoImagen(EstadoImagen.SUBIDA);
+        testProduct.setImagenUrl("http://cloudinary.com/test.jpg");
+        when(productService.getProductById(1L)).thenReturn(testProduct);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = productController.getEstadoImagen(1L);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(EstadoImagen.SUBIDA, response.getBody().get("estadoImagen"));
+        assertEquals("http://cloudinary.com/test.jpg", response.getBody().get("imagenUrl"));
+    }
+
+    @Test
+    void getEstadoImagen_ShouldReturnNotFoundForUnknownProduct() {
+        // Arrange
+        when(productService.getProductById(99L)).thenThrow(new RuntimeException("Producto no encontrado con ID: 99"));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = productController.getEstadoImagen(99L);
+
+        // Assert
+        assertEquals(404, response.getStatusCodeValue());
+    }
+}
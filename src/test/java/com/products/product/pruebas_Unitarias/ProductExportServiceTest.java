@@ -0,0 +1,83 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import com.products.product.service.ProductExportService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductExportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ProductExportService productExportService;
+
+    @BeforeEach
+    void setUp() {
+        productExportService = new ProductExportService(productRepository, entityManager, objectMapper);
+    }
+
+    @Test
+    void exportarNdjson_ShouldWriteOneProductPerLine() throws Exception {
+        // Arrange
+        Product product1 = new Product();
+        product1.setId(1L);
+        product1.setNombre("Laptop");
+        product1.setCategoria(Categoria.ELECTRONICA);
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setNombre("Camisa");
+        when(productRepository.streamAllOrderById()).thenReturn(Stream.of(product1, product2));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // Act
+        long filas = productExportService.exportarNdjson(salida);
+
+        // Assert
+        assertEquals(2, filas);
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lineas.length);
+        JsonNode primera = objectMapper.readTree(lineas[0]);
+        assertEquals(1L, primera.get("id").asLong());
+        assertEquals("ELECTRONICA", primera.get("categoria").asText());
+        assertEquals("Camisa", objectMapper.readTree(lineas[1]).get("nombre").asText());
+        verify(entityManager, times(2)).detach(any(Product.class));
+    }
+
+    @Test
+    void exportarNdjson_ShouldWriteNothingWhenCatalogEmpty() throws Exception {
+        // Arrange
+        when(productRepository.streamAllOrderById()).thenReturn(Stream.empty());
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // Act
+        long filas = productExportService.exportarNdjson(salida);
+
+        // Assert
+        assertEquals(0, filas);
+        assertEquals(0, salida.size());
+        verify(entityManager, never()).detach(any());
+    }
+}
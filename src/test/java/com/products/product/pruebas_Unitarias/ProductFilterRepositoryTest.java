@@ -0,0 +1,124 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.dto.OrdenProductos;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import com.products.product.repository.ProductSpecifications;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.products.product.pruebas_Unitarias.ProductFilterRepositoryTest$CapturaSql")
+class ProductFilterRepositoryTest {
+
+    // Guarda el SQL que Hibernate envía a la base de datos
+    public static class CapturaSql implements StatementInspector {
+        static final List<String> SENTENCIAS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SENTENCIAS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        CapturaSql.SENTENCIAS.clear();
+        productRepository.save(producto("Teclado", Categoria.ELECTRONICA, 50.0, 3));
+        productRepository.save(producto("Mouse", Categoria.ELECTRONICA, 20.0, 0));
+        productRepository.save(producto("Monitor", Categoria.ELECTRONICA, 50.0, 7));
+        productRepository.save(producto("Audifonos", Categoria.ELECTRONICA, 80.0, 1));
+        productRepository.save(producto("Cable", Categoria.ELECTRONICA, null, 9));
+        productRepository.save(producto("Camisa", Categoria.ROPA, 30.0, 5));
+    }
+
+    @Test
+    void findFiltered_ShouldCombineFilters() {
+        // Arrange
+        Specification<Product> spec = Specification.where(ProductSpecifications.categoria(Categoria.ELECTRONICA))
+                .and(ProductSpecifications.precioDesde(20.0))
+                .and(ProductSpecifications.precioHasta(60.0))
+                .and(ProductSpecifications.conStock());
+
+        // Act
+        List<Product> result = productRepository.findFiltered(spec, OrdenProductos.PRECIO_ASC.getSort(), 10);
+
+        // Assert
+        assertEquals(List.of("Teclado", "Monitor"), result.stream().map(Product::getNombre).toList());
+    }
+
+    @Test
+    void findFiltered_ShouldWalkPricePagesWithoutGapsOrDuplicates() {
+        // Arrange
+        List<String> recorridos = new ArrayList<>();
+        Double precio = null;
+        Long id = null;
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            Specification<Product> spec = Specification.where(ProductSpecifications.categoria(Categoria.ELECTRONICA))
+                    .and(ProductSpecifications.conPrecio())
+                    .and(ProductSpecifications.despuesDe(OrdenProductos.PRECIO_DESC, precio, id));
+            List<Product> pagina = productRepository.findFiltered(spec, OrdenProductos.PRECIO_DESC.getSort(), 1);
+            if (pagina.isEmpty()) {
+                break;
+            }
+            Product ultimo = pagina.get(0);
+            recorridos.add(ultimo.getNombre());
+            precio = ultimo.getPrecio();
+            id = ultimo.getId();
+        }
+
+        // Assert
+        // Monitor y Teclado cuestan lo mismo: el desempate por id también es descendente
+        assertEquals(List.of("Audifonos", "Monitor", "Teclado", "Mouse"), recorridos);
+    }
+
+    @Test
+    void findFiltered_ShouldMatchNameCaseInsensitiveAndEscapeWildcards() {
+        // Act
+        List<Product> porNombre = productRepository.findFiltered(
+                ProductSpecifications.nombreContiene("MON"), OrdenProductos.ID.getSort(), 10);
+        List<Product> comodin = productRepository.findFiltered(
+                ProductSpecifications.nombreContiene("%"), OrdenProductos.ID.getSort(), 10);
+
+        // Assert
+        assertEquals(List.of("Monitor"), porNombre.stream().map(Product::getNombre).toList());
+        assertTrue(comodin.isEmpty());
+    }
+
+    @Test
+    void nombreCoincide_ShouldRenderPostgresFullTextPredicate() {
+        // Act: H2 no entiende @@ y falla, pero el SQL ya se generó como para PostgreSQL
+        assertThrows(RuntimeException.class, () -> productRepository.findFiltered(
+                ProductSpecifications.nombreCoincide("tecl:*"), OrdenProductos.ID.getSort(), 10));
+
+        // Assert: la misma expresión que el índice idx_products_nombre_tsv
+        String sql = CapturaSql.SENTENCIAS.get(CapturaSql.SENTENCIAS.size() - 1);
+        assertTrue(sql.contains("to_tsvector('spanish', coalesce(p1_0.nombre, '')) @@ to_tsquery('spanish', "), sql);
+    }
+
+    private Product producto(String nombre, Categoria categoria, Double precio, int cantidad) {
+        Product product = new Product();
+        product.setNombre(nombre);
+        product.setCategoria(categoria);
+        product.setPrecio(precio);
+        product.setCantidad(cantidad);
+        return product;
+    }
+}
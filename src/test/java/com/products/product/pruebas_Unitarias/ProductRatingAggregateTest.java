@@ -0,0 +1,118 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.dto.ResumenValoraciones;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.entity.ProductRating;
+import com.products.product.entity.Review;
+import com.products.product.repository.ProductRatingRepository;
+import com.products.product.repository.ProductRepository;
+import com.products.product.repository.ReviewRepository;
+import com.products.product.service.DeliveryValidationService;
+import com.products.product.service.ReviewService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({ReviewService.class, DatabasePlatform.class})
+class ProductRatingAggregateTest {
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductRatingRepository productRatingRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private DeliveryValidationService deliveryValidationService;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setCantidad(5);
+        product = productRepository.save(product);
+        when(deliveryValidationService.hasUserReceivedProduct(anyLong(), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void aggregate_ShouldTrackCreateUpdateAndDelete() {
+        // Arrange
+        Review primera = reviewService.createReview(review(1L, 5));
+        reviewService.createReview(review(2L, 3));
+
+        // Act
+        reviewService.updateReview(primera.getId(), conRating(4));
+        reviewService.createReview(review(3L, 1));
+        reviewService.deleteReview(primera.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        ProductRating rating = productRatingRepository.findById(product.getId()).orElseThrow();
+        assertEquals(2, rating.getRatingCount());
+        assertEquals(4, rating.getRatingSum());
+        assertEquals(1, rating.getStars1());
+        assertEquals(1, rating.getStars3());
+        assertEquals(0, rating.getStars4());
+        assertEquals(0, rating.getStars5());
+    }
+
+    @Test
+    void aggregate_ShouldSeedFromExistingReviews() {
+        // Arrange: reseñas anteriores al agregado
+        Review antigua = review(1L, 2);
+        antigua.setProduct(product);
+        reviewRepository.save(antigua);
+
+        ResumenValoraciones antes = reviewService.getRatingSummary(product.getId());
+
+        // Act
+        reviewService.createReview(review(2L, 4));
+        entityManager.clear();
+
+        // Assert
+        assertEquals(1, antes.getRatingCount());
+        ResumenValoraciones despues = reviewService.getRatingSummary(product.getId());
+        assertEquals(2, despues.getRatingCount());
+        assertEquals(3.0, despues.getPromedio());
+        assertEquals(1L, despues.getEstrellas().get(2));
+        assertEquals(1L, despues.getEstrellas().get(4));
+    }
+
+    private Review review(Long userId, int rating) {
+        Review review = new Review();
+        review.setUserId(userId);
+        review.setProduct(product);
+        review.setRating(rating);
+        return review;
+    }
+
+    private Review conRating(int rating) {
+        Review review = new Review();
+        review.setRating(rating);
+        return review;
+    }
+}
@@ -0,0 +1,181 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.entity.ProductRating;
+import com.products.product.entity.Review;
+import com.products.product.repository.ProductRatingRepository;
+import com.products.product.repository.ProductRepository;
+import com.products.product.repository.ReviewRepository;
+import com.products.product.service.DeliveryValidationService;
+import com.products.product.service.ReviewService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+// Sin la transacción de cada prueba: las reseñas deben confirmarse por separado para competir.
+// Con el dialecto de PostgreSQL el bloqueo de Hibernate no es válido en H2; la siembra usa SQL nativo
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReviewService.class, DatabasePlatform.class})
+class ProductRatingConcurrenciaTest {
+
+    private static final int HILOS = 6;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductRatingRepository productRatingRepository;
+
+    @MockBean
+    private DeliveryValidationService deliveryValidationService;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setCantidad(5);
+        product = productRepository.save(product);
+        when(deliveryValidationService.hasUserReceivedProduct(anyLong(), anyLong())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewRepository.deleteAll();
+        productRatingRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void createReview_ShouldSeedAggregateOnceUnderConcurrentFirstReviews() throws Exception {
+        // Arrange
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        // Act: todas las reseñas llegan sin fila de resumen y la siembran a la vez
+        for (int i = 1; i <= HILOS; i++) {
+            long userId = i;
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                Review review = new Review();
+                review.setUserId(userId);
+                review.setProduct(product);
+                review.setRating(4);
+                return reviewService.createReview(review);
+            }));
+        }
+        salida.countDown();
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        // Assert
+        ProductRating rating = productRatingRepository.findById(product.getId()).orElseThrow();
+        assertEquals(HILOS, rating.getRatingCount());
+        assertEquals(4 * HILOS, rating.getRatingSum());
+    }
+
+    @Test
+    void updateReview_ShouldKeepAggregateConsistentUnderConcurrentEdits() throws Exception {
+        // Arrange
+        Long reviewId = crearResena(5).getId();
+
+        // Act: cada hilo cambia la misma reseña a otra valoración y resta la que encuentra
+        aLaVez(i -> () -> {
+            Review updates = new Review();
+            updates.setRating(1 + i % 4);
+            return reviewService.updateReview(reviewId, updates);
+        });
+
+        // Assert: el agregado refleja una sola reseña con la valoración final
+        int finalRating = reviewRepository.findById(reviewId).orElseThrow().getRating();
+        ProductRating rating = productRatingRepository.findById(product.getId()).orElseThrow();
+        assertEquals(1, rating.getRatingCount());
+        assertEquals(finalRating, rating.getRatingSum());
+        assertEquals(1, rating.getStars1() + rating.getStars2() + rating.getStars3() + rating.getStars4() + rating.getStars5());
+    }
+
+    @Test
+    void deleteReview_ShouldSubtractOnceUnderConcurrentDeletes() throws Exception {
+        // Arrange
+        crearResena(3);
+        Long reviewId = crearResena(5).getId();
+
+        // Act
+        aLaVez(i -> () -> {
+            reviewService.deleteReview(reviewId);
+            return null;
+        });
+
+        // Assert: solo queda la otra reseña
+        ProductRating rating = productRatingRepository.findById(product.getId()).orElseThrow();
+        assertEquals(1, rating.getRatingCount());
+        assertEquals(3, rating.getRatingSum());
+        assertEquals(0, rating.getStars5());
+    }
+
+    private Review crearResena(int estrellas) {
+        Review review = new Review();
+        review.setUserId(100L + estrellas);
+        review.setProduct(product);
+        review.setRating(estrellas);
+        return reviewService.createReview(review);
+    }
+
+    // Lanza HILOS tareas que arrancan a la vez y espera a que terminen todas
+    private void aLaVez(IntFunction<Callable<?>> tarea) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            Callable<?> accion = tarea.apply(i);
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                return accion.call();
+            }));
+        }
+        salida.countDown();
+        try {
+            for (Future<?> t : tareas) {
+                t.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+    }
+}
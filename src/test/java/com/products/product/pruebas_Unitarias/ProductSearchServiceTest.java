@@ -0,0 +1,119 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.config.DatabasePlatform;
+import com.products.product.entity.Product;
+import com.products.product.repository.ProductRepository;
+import com.products.product.service.ProductSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DatabasePlatform databasePlatform;
+
+    @InjectMocks
+    private ProductSearchService productSearchService;
+
+    private Product testProduct;
+
+    @BeforeEach
+    void setUp() {
+        testProduct = new Product();
+        testProduct.setId(1L);
+        testProduct.setNombre("Laptop Gamer");
+    }
+
+    @Test
+    void construirConsulta_ShouldBuildPrefixTermsJoinedWithAnd() {
+        assertEquals("lap:* & gamer:*", ProductSearchService.construirConsulta("  Lap, GAMER!! "));
+        assertEquals("camión:* & 4x4:*", ProductSearchService.construirConsulta("camión 4x4"));
+    }
+
+    @Test
+    void construirConsulta_ShouldDropOperatorsAndEmptyInput() {
+        assertEquals("a:* & b:*", ProductSearchService.construirConsulta("a' | !b:*"));
+        assertEquals("", ProductSearchService.construirConsulta("  &|! "));
+        assertEquals("", ProductSearchService.construirConsulta(null));
+    }
+
+    @Test
+    void buscar_ShouldUseFullTextIndexOnPostgreSQL() {
+        // Arrange
+        when(databasePlatform.isPostgreSQL()).thenReturn(true);
+        productSearchService.inicializarIndice();
+        when(productRepository.buscarTextoCompleto("lap:*", 20, 40L)).thenReturn(List.of(testProduct));
+
+        // Act
+        List<Product> result = productSearchService.buscar("lap", 2, 20);
+
+        // Assert
+        assertEquals(List.of(testProduct), result);
+        verify(jdbcTemplate, times(3)).execute(anyString());
+        verify(productRepository, never()).findByNombreContainingIgnoreCaseOrDescripcionContainingIgnoreCase(any(), any(), any());
+    }
+
+    @Test
+    void buscar_ShouldFallBackToLikeWhenIndexUnavailable() {
+        // Arrange
+        when(databasePlatform.isPostgreSQL()).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("sin permisos")).when(jdbcTemplate).execute(anyString());
+        productSearchService.inicializarIndice();
+        Pageable pageable = PageRequest.of(0, 100, Sort.by("id"));
+        when(productRepository.findByNombreContainingIgnoreCaseOrDescripcionContainingIgnoreCase("laptop", "laptop", pageable))
+                .thenReturn(List.of(testProduct));
+
+        // Act
+        List<Product> result = productSearchService.buscar(" laptop ", null, 500);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(productRepository, never()).buscarTextoCompleto(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void buscar_ShouldComputeOffsetWithoutOverflowForLargePages() {
+        // Arrange
+        when(databasePlatform.isPostgreSQL()).thenReturn(true);
+        productSearchService.inicializarIndice();
+
+        // Act
+        List<Product> result = productSearchService.buscar("lap", Integer.MAX_VALUE, 100);
+
+        // Assert: con int el desplazamiento sería negativo
+        assertTrue(result.isEmpty());
+        verify(productRepository).buscarTextoCompleto("lap:*", 100, (long) Integer.MAX_VALUE * 100);
+    }
+
+    @Test
+    void buscar_ShouldReturnEmptyWithoutQueryingWhenNoTerms() {
+        // Act
+        List<Product> result = productSearchService.buscar("***", 0, 10);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(productRepository);
+    }
+}
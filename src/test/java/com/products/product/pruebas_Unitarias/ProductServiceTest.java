@@ -1,20 +1,45 @@
 package com.products.product.pruebas_Unitarias;
 
+import com.products.product.dto.CursorPage;
+import com.products.product.dto.DisponibilidadProducto;
+import com.products.product.dto.FiltroProductos;
+import com.products.product.dto.OrdenProductos;
+import com.products.product.dto.ReservaStockItem;
+import com.products.product.dto.StockProducto;
 import com.products.product.entity.Product;
 import com.products.product.entity.Categoria;
+import com.products.product.entity.EstadoImagen;
+import com.products.product.entity.ImageDeletion;
+import com.products.product.exception.StockInsuficienteException;
+import com.products.product.exception.VersionRequeridaException;
+import com.products.product.config.CacheConfig;
+import com.products.product.config.DatabasePlatform;
+import com.products.product.config.MetricasConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.products.product.repository.ImageDeletionRepository;
 import com.products.product.repository.ProductRepository;
 import com.products.product.service.ProductService;
+import com.products.product.util.Paginacion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.Logger;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.data.domain.Limit;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,13 +52,29 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
+    @Mock
+    private ImageDeletionRepository imageDeletionRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DatabasePlatform databasePlatform;
+
+    private MeterRegistry meterRegistry;
+
     private ProductService productService;
 
     private Product testProduct;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productService = new ProductService(productRepository, imageDeletionRepository, cacheManager,
+                meterRegistry, transactionManager, databasePlatform, 3, 0);
         testProduct = new Product();
         testProduct.setId(1L);
         testProduct.setNombre("Test Product");
@@ -99,9 +140,11 @@ class ProductServiceTest {
     @Test
     void updateProduct_ShouldUpdateExistingProduct() {
         // Arrange
+        testProduct.setVersion(2L);
         Product updates = new Product();
         updates.setNombre("Updated Product");
         updates.setCantidad(15);
+        updates.setVersion(2L);
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
         when(productRepository.save(any(Product.class))).thenReturn(testProduct);
@@ -116,30 +159,131 @@ class ProductServiceTest {
         verify(productRepository).findById(1L);
         verify(productRepository).save(any(Product.class));
     }
+    @Test
+    void updateProduct_ShouldRetryOnVersionConflict() {
+        // Arrange
+        Product updates = new Product();
+        updates.setPrecio(10.0);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L))
+                .thenReturn(testProduct);
+
+        // Act
+        Product result = productService.updateProduct(1L, updates);
+
+        // Assert
+        assertEquals(10.0, result.getPrecio());
+        verify(productRepository, times(2)).findById(1L);
+        verify(transactionManager, times(2)).getTransaction(any());
+        assertEquals(1.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "reintento").count());
+    }
+
+    @Test
+    void updateProduct_ShouldGiveUpAfterMaxAttempts() {
+        // Arrange
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> productService.updateProduct(1L, new Product()));
+        verify(productRepository, times(3)).save(any(Product.class));
+        assertEquals(2.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "reintento").count());
+        assertEquals(1.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "agotado").count());
+    }
+
+    @Test
+    void updateProduct_ShouldRequireVersionWhenSettingCantidad() {
+        // Arrange
+        Product updates = new Product();
+        updates.setCantidad(50);
+
+        // Act & Assert
+        assertThrows(VersionRequeridaException.class, () -> productService.updateProduct(1L, updates));
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void updateProduct_ShouldRejectStaleClientVersionWithoutRetrying() {
+        // Arrange
+        testProduct.setVersion(4L);
+        Product updates = new Product();
+        updates.setVersion(3L);
+        updates.setCantidad(50);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> productService.updateProduct(1L, updates));
+        verify(productRepository, times(1)).findById(1L);
+        verify(productRepository, never()).save(any(Product.class));
+        assertEquals(10, testProduct.getCantidad());
+        assertEquals(1.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_VERSION, "resultado", "version-cliente").count());
+    }
 
     @Test
     void deleteProduct_ShouldDeleteWhenExists() {
         // Arrange
-        when(productRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(productRepository).deleteById(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
 
         // Act
         productService.deleteProduct(1L);
 
         // Assert
-        verify(productRepository).existsById(1L);
-        verify(productRepository).deleteById(1L);
+        verify(productRepository).findById(1L);
+        verify(productRepository).delete(testProduct);
     }
 
     @Test
     void deleteProduct_ShouldThrowExceptionWhenNotExists() {
         // Arrange
-        when(productRepository.existsById(1L)).thenReturn(false);
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> productService.deleteProduct(1L));
-        verify(productRepository).existsById(1L);
-        verify(productRepository, never()).deleteById(any());
+        verify(productRepository).findById(1L);
+        verify(productRepository, never()).delete(any(Product.class));
+        verifyNoInteractions(imageDeletionRepository);
+    }
+
+    @Test
+    void deleteProduct_ShouldQueueImageAndThumbnailsForDeletion() {
+        // Arrange
+        testProduct.setImagenUrl("http://cloudinary.com/test.jpg");
+        testProduct.setMiniatura160Url("http://cloudinary.com/test-160.jpg");
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        // Act
+        productService.deleteProduct(1L);
+
+        // Assert
+        ArgumentCaptor<List<ImageDeletion>> encoladas = ArgumentCaptor.forClass(List.class);
+        verify(imageDeletionRepository).saveAll(encoladas.capture());
+        assertEquals(List.of("http://cloudinary.com/test.jpg", "http://cloudinary.com/test-160.jpg"),
+                encoladas.getValue().stream().map(ImageDeletion::getUrl).toList());
+    }
+
+    @Test
+    void updateProduct_WithNewImage_ShouldQueuePreviousImagesAndClearThumbnails() {
+        // Arrange
+        testProduct.setImagenUrl("http://cloudinary.com/old.jpg");
+        testProduct.setMiniatura640Url("http://cloudinary.com/old-640.jpg");
+        Product updates = new Product();
+        updates.setImagenUrl("http://cloudinary.com/new.jpg");
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Product result = productService.updateProduct(1L, updates);
+
+        // Assert
+        assertEquals("http://cloudinary.com/new.jpg", result.getImagenUrl());
+        assertNull(result.getMiniatura640Url());
+        ArgumentCaptor<List<ImageDeletion>> encoladas = ArgumentCaptor.forClass(List.class);
+        verify(imageDeletionRepository).saveAll(encoladas.capture());
+        assertEquals(List.of("http://cloudinary.com/old.jpg", "http://cloudinary.com/old-640.jpg"),
+                encoladas.getValue().stream().map(ImageDeletion::getUrl).toList());
     }
 
     @Test
@@ -194,54 +338,380 @@ class ProductServiceTest {
     @Test
     void verificarDisponibilidad_ShouldReturnTrueWhenEnoughStock() {
         // Arrange
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findCantidadById(1L)).thenReturn(Optional.of(10));
 
         // Act
         boolean result = productService.verificarDisponibilidad(1L, 5);
 
         // Assert
         assertTrue(result);
-        verify(productRepository).findById(1L);
+        verify(productRepository).findCantidadById(1L);
+        verify(productRepository, never()).findById(any());
     }
 
     @Test
     void verificarDisponibilidad_ShouldReturnFalseWhenNotEnoughStock() {
         // Arrange
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findCantidadById(1L)).thenReturn(Optional.of(10));
 
         // Act
         boolean result = productService.verificarDisponibilidad(1L, 15);
 
         // Assert
         assertFalse(result);
-        verify(productRepository).findById(1L);
+        verify(productRepository).findCantidadById(1L);
+    }
+
+    @Test
+    void obtenerStock_ShouldThrowWhenProductNotFound() {
+        // Arrange
+        when(productRepository.findCantidadById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> productService.obtenerStock(1L));
+    }
+
+    @Test
+    void verificarDisponibilidad_Bulk_ShouldUseSingleQueryAndKeepRequestOrder() {
+        // Arrange
+        when(productRepository.findStockByIdIn(List.of(2L, 1L, 9L)))
+                .thenReturn(List.of(new StockProducto(1L, 10), new StockProducto(2L, 1)));
+
+        // Act
+        List<DisponibilidadProducto> result = productService.verificarDisponibilidad(List.of(2L, 1L, 9L), List.of(3, 4, 1));
+
+        // Assert
+        assertEquals(3, result.size());
+        assertEquals(2L, result.get(0).getProductId());
+        assertFalse(result.get(0).isDisponible());
+        assertEquals(1, result.get(0).getStockActual());
+        assertTrue(result.get(1).isDisponible());
+        assertFalse(result.get(2).isDisponible());
+        assertNull(result.get(2).getStockActual());
+        verify(productRepository).findStockByIdIn(List.of(2L, 1L, 9L));
+    }
+
+    @Test
+    void verificarDisponibilidad_Bulk_ShouldSumQuantitiesOfRepeatedIds() {
+        // Arrange
+        when(productRepository.findStockByIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(new StockProducto(1L, 5), new StockProducto(2L, 10)));
+
+        // Act: 3 + 3 del producto 1 superan su stock aunque cada línea por separado no lo haga
+        List<DisponibilidadProducto> result = productService.verificarDisponibilidad(List.of(1L, 2L, 1L), List.of(3, 4, 3));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getProductId());
+        assertEquals(6, result.get(0).getCantidadSolicitada());
+        assertFalse(result.get(0).isDisponible());
+        assertTrue(result.get(1).isDisponible());
+        verify(productRepository).findStockByIdIn(List.of(1L, 2L));
+    }
+
+    @Test
+    void verificarDisponibilidad_Bulk_ShouldRejectMismatchedLists() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.verificarDisponibilidad(List.of(1L, 2L), List.of(1)));
+        verify(productRepository, never()).findStockByIdIn(any());
     }
 
     @Test
     void actualizarStock_ShouldUpdateStock() {
         // Arrange
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(productRepository.establecerStock(1L, 15)).thenReturn(1);
 
         // Act
         productService.actualizarStock(1L, 15);
 
         // Assert
-        assertEquals(15, testProduct.getCantidad());
-        verify(productRepository).save(testProduct);
+        verify(productRepository).establecerStock(1L, 15);
+        verify(productRepository, never()).findById(any());
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void actualizarStock_ShouldDecrementStockAtomically() {
+        // Arrange
+        when(productRepository.descontarStock(1L, 3)).thenReturn(1);
+
+        // Act
+        productService.actualizarStock(1L, -3);
+
+        // Assert
+        verify(productRepository).descontarStock(1L, 3);
+        verify(productRepository, never()).existsById(any());
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void actualizarStock_ShouldThrowWhenNotEnoughStock() {
+        // Arrange
+        when(productRepository.descontarStock(1L, 15)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        StockInsuficienteException exception = assertThrows(StockInsuficienteException.class,
+                () -> productService.actualizarStock(1L, -15));
+        assertEquals(1L, exception.getProductId());
+        assertEquals(1.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_STOCK, "operacion", "descuento").count());
+    }
+
+    @Test
+    void actualizarStock_ShouldThrowWhenProductNotFound() {
+        // Arrange
+        when(productRepository.descontarStock(1L, 2)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(false);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> productService.actualizarStock(1L, -2));
+        assertFalse(exception instanceof StockInsuficienteException);
     }
 
     @Test
     void revertirStock_ShouldAddToStock() {
         // Arrange
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(productRepository.incrementarStock(1L, 5)).thenReturn(1);
 
         // Act
         productService.revertirStock(1L, 5);
 
         // Assert
-        assertEquals(15, testProduct.getCantidad());
-        verify(productRepository).save(testProduct);
+        verify(productRepository).incrementarStock(1L, 5);
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void revertirStock_ShouldThrowWhenProductNotFound() {
+        // Arrange
+        when(productRepository.incrementarStock(1L, 5)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> productService.revertirStock(1L, 5));
+    }
+
+    @Test
+    void findPage_ShouldReturnNextCursorWhenMoreResults() {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        Product product3 = new Product();
+        product3.setId(3L);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(Arrays.asList(testProduct, product2, product3));
+
+        // Act
+        CursorPage<Product> result = productService.findPage(null, 2);
+
+        // Assert
+        assertEquals(2, result.getItems().size());
+        assertNotNull(result.getNext());
+        assertEquals(2L, Paginacion.decodeIdCursor(result.getNext()));
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3));
+    }
+
+    @Test
+    void findPage_ShouldCapPageSizeAndEndWithoutCursor() {
+        // Arrange
+        String cursor = Paginacion.encodeCursor(10L);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(10L), any(Limit.class)))
+                .thenReturn(List.of(testProduct));
+
+        // Act
+        CursorPage<Product> result = productService.findPage(cursor, 10_000);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNext());
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(10L, Limit.of(Paginacion.TAMANO_MAXIMO + 1));
+    }
+
+    @Test
+    void findPage_ShouldRejectInvalidCursor() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.findPage("no-es-un-cursor", 10));
+        verify(productRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void reservarStock_ShouldDecrementAllProducts() {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setCantidad(4);
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(List.of(testProduct, product2));
+
+        // Act
+        Map<Long, Integer> result = productService.reservarStock(List.of(
+                new ReservaStockItem(2L, 1),
+                new ReservaStockItem(1L, 3),
+                new ReservaStockItem(2L, 2)));
+
+        // Assert
+        assertEquals(List.of(1L, 2L), List.copyOf(result.keySet()));
+        assertEquals(7, result.get(1L));
+        assertEquals(1, result.get(2L));
+        verify(productRepository).findAllByIdForUpdate(argThat(ids -> List.copyOf(ids).equals(List.of(1L, 2L))));
+    }
+
+    @Test
+    void reservarStock_ShouldFailWithoutChangesWhenAnyProductLacksStock() {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setCantidad(1);
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(List.of(testProduct, product2));
+
+        // Act & Assert
+        StockInsuficienteException exception = assertThrows(StockInsuficienteException.class,
+                () -> productService.reservarStock(List.of(new ReservaStockItem(1L, 3), new ReservaStockItem(2L, 5))));
+        assertEquals(2L, exception.getProductId());
+        assertEquals(10, testProduct.getCantidad());
+        assertEquals(1, product2.getCantidad());
+        assertEquals(1.0, meterRegistry.counter(MetricasConfig.CONFLICTOS_STOCK, "operacion", "reserva").count());
+    }
+
+    @Test
+    void reservarStock_ShouldThrowWhenProductNotFound() {
+        // Arrange
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(List.of(testProduct));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> productService.reservarStock(List.of(new ReservaStockItem(1L, 1), new ReservaStockItem(9L, 1))));
+        assertEquals("Producto no encontrado con ID: 9", exception.getMessage());
+    }
+
+    @Test
+    void reservarStock_ShouldRejectInvalidQuantities() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.reservarStock(List.of(new ReservaStockItem(1L, 0))));
+        assertThrows(IllegalArgumentException.class, () -> productService.reservarStock(List.of()));
+        verify(productRepository, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    void buscarConFiltros_ShouldReturnPriceCursorWhenSortedByPrice() {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setPrecio(1500.0);
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategoria(Categoria.ELECTRONICA);
+        filtro.setOrden(OrdenProductos.PRECIO_ASC);
+        filtro.setSize(1);
+        when(productRepository.findFiltered(any(), eq(OrdenProductos.PRECIO_ASC.getSort()), eq(2)))
+                .thenReturn(Arrays.asList(testProduct, product2));
+
+        // Act
+        CursorPage<Product> result = productService.buscarConFiltros(filtro);
+
+        // Assert
+        assertEquals(List.of(testProduct), result.getItems());
+        assertArrayEquals(new String[]{"999.99", "1"}, Paginacion.decodeCursor(result.getNext(), 2));
+    }
+
+    @Test
+    void buscarConFiltros_ShouldDefaultToIdOrderAndEndWithoutCursor() {
+        // Arrange
+        when(productRepository.findFiltered(any(), eq(OrdenProductos.ID.getSort()), eq(Paginacion.TAMANO_DEFECTO + 1)))
+                .thenReturn(List.of(testProduct));
+
+        // Act
+        CursorPage<Product> result = productService.buscarConFiltros(new FiltroProductos());
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNext());
+    }
+
+    @Test
+    void buscarConFiltros_ShouldRejectInvertedPriceRange() {
+        // Arrange
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setPrecioMin(100.0);
+        filtro.setPrecioMax(10.0);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.buscarConFiltros(filtro));
+        verify(productRepository, never()).findFiltered(any(), any(), anyInt());
+    }
+
+    @Test
+    void buscarConFiltros_ShouldRejectCursorFromAnotherOrder() {
+        // Arrange
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setOrden(OrdenProductos.PRECIO_DESC);
+        filtro.setCursor(Paginacion.encodeCursor(5L));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.buscarConFiltros(filtro));
+        verify(productRepository, never()).findFiltered(any(), any(), anyInt());
+    }
+
+
+    @Test
+    void fallarSubidasAbandonadas_ShouldMarkOnlyUploadsStillPending() {
+        // Arrange
+        Instant limite = Instant.parse("2026-01-01T10:00:00Z");
+        Cache productos = mock(Cache.class);
+        when(cacheManager.getCache(CacheConfig.PRODUCTOS)).thenReturn(productos);
+        when(productRepository.findSubidasPendientesAntesDe(EstadoImagen.PENDIENTE, limite)).thenReturn(List.of(1L, 2L));
+        when(productRepository.cambiarEstadoImagen(1L, EstadoImagen.PENDIENTE, EstadoImagen.ERROR)).thenReturn(1);
+        // La subida del 2 terminó entre la consulta y el UPDATE
+        when(productRepository.cambiarEstadoImagen(2L, EstadoImagen.PENDIENTE, EstadoImagen.ERROR)).thenReturn(0);
+
+        // Act
+        int fallidas = productService.fallarSubidasAbandonadas(limite);
+
+        // Assert
+        assertEquals(1, fallidas);
+        verify(productos).evict(1L);
+        verify(productos, never()).evict(2L);
+    }
+
+
+    @Test
+    void actualizarImagen_ShouldQueueUploadedImageWhenProductWasDeleted() {
+        // Arrange
+        when(productRepository.actualizarImagen(1L, "http://cloudinary.com/huerfana.jpg", EstadoImagen.SUBIDA)).thenReturn(0);
+
+        // Act
+        boolean actualizado = productService.actualizarImagen(1L, "http://cloudinary.com/huerfana.jpg", EstadoImagen.SUBIDA);
+
+        // Assert
+        assertFalse(actualizado);
+        ArgumentCaptor<ImageDeletion> eliminacion = ArgumentCaptor.forClass(ImageDeletion.class);
+        verify(imageDeletionRepository).save(eliminacion.capture());
+        assertEquals("http://cloudinary.com/huerfana.jpg", eliminacion.getValue().getUrl());
+    }
+
+    @Test
+    void actualizarImagen_ShouldCancelPendingDeletionOfReusedUrl() {
+        // Arrange
+        when(productRepository.actualizarImagen(1L, "/imagenes/abc.jpg", EstadoImagen.SUBIDA)).thenReturn(1);
+
+        // Act
+        boolean actualizado = productService.actualizarImagen(1L, "/imagenes/abc.jpg", EstadoImagen.SUBIDA);
+
+        // Assert
+        assertTrue(actualizado);
+        verify(imageDeletionRepository).deleteByUrlIn(List.of("/imagenes/abc.jpg"));
+        verify(imageDeletionRepository, never()).save(any(ImageDeletion.class));
+    }
+
+    @Test
+    void actualizarImagen_ShouldNotQueueAnythingWhenFailedUploadFindsNoProduct() {
+        // Arrange
+        when(productRepository.actualizarImagen(1L, null, EstadoImagen.ERROR)).thenReturn(0);
+
+        // Act
+        boolean actualizado = productService.actualizarImagen(1L, null, EstadoImagen.ERROR);
+
+        // Assert
+        assertFalse(actualizado);
+        verifyNoInteractions(imageDeletionRepository);
     }
 }
\ No newline at end of file
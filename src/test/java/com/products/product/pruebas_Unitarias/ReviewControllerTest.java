@@ -1,7 +1,11 @@
 package com.products.product.pruebas_Unitarias;
 
 import com.products.product.controller.ReviewController;
+import com.products.product.dto.OrdenReviews;
+import com.products.product.dto.ResumenValoraciones;
+import com.products.product.dto.ReviewProducto;
 import com.products.product.entity.Review;
+import com.products.product.service.DeliveryValidationService;
 import com.products.product.service.ReviewService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,11 +13,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.ResponseEntity;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,6 +32,9 @@ class ReviewControllerTest {
     @Mock
     private ReviewService reviewService;
 
+    @Mock
+    private DeliveryValidationService deliveryValidationService;
+
     @InjectMocks
     private ReviewController reviewController;
 
@@ -168,4 +178,72 @@ class ReviewControllerTest {
         assertTrue((Boolean) result.get("canReview"));
         verify(reviewService).canUserReviewProduct(userId, productId);
     }
+
+    @Test
+    void getRatingSummary_ShouldReturnSummary() {
+        // Arrange
+        ResumenValoraciones resumen = new ResumenValoraciones(1L, 2, 4.5, Map.of(4, 1L, 5, 1L));
+        when(reviewService.getRatingSummary(1L)).thenReturn(resumen);
+
+        // Act
+        ResponseEntity<ResumenValoraciones> response = reviewController.getRatingSummary(1L);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(4.5, response.getBody().getPromedio());
+        verify(reviewService, never()).getProductReviews(anyLong());
+    }
+
+    @Test
+    void getProductReviewsPage_ShouldReturnSlimPage() {
+        // Arrange
+        PageRequest pageRequest = PageRequest.of(0, 1, OrdenReviews.MEJOR.getSort());
+        ReviewProducto vista = new ReviewProducto(1L, 1L, 1L, 5, "Great product!", true);
+        when(reviewService.getProductReviewsPage(1L, 0, 1, OrdenReviews.MEJOR))
+                .thenReturn(new SliceImpl<>(List.of(vista), pageRequest, true));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reviewController.getProductReviewsPage(1L, 0, 1, OrdenReviews.MEJOR);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(List.of(vista), response.getBody().get("reviews"));
+        assertEquals(true, response.getBody().get("hasNext"));
+    }
+
+    @Test
+    void canUserReviewProducts_ShouldReturnMap() {
+        // Arrange
+        when(reviewService.canUserReviewProducts(1L, List.of(1L, 2L))).thenReturn(Map.of(1L, true, 2L, false));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reviewController.canUserReviewProducts(1L, List.of(1L, 2L));
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(Map.of(1L, true, 2L, false), response.getBody().get("canReview"));
+    }
+
+    @Test
+    void canUserReviewProducts_ShouldRejectTooManyProducts() {
+        // Arrange
+        List<Long> productIds = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reviewController.canUserReviewProducts(1L, productIds);
+
+        // Assert
+        assertEquals(400, response.getStatusCodeValue());
+        verifyNoInteractions(reviewService);
+    }
+
+    @Test
+    void invalidarEntrega_ShouldDelegateToDeliveryService() {
+        // Act
+        ResponseEntity<Void> response = reviewController.invalidarEntrega(1L, 2L);
+
+        // Assert
+        assertEquals(204, response.getStatusCodeValue());
+        verify(deliveryValidationService).invalidar(1L, 2L);
+    }
 }
@@ -0,0 +1,89 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.products.product.dto.OrdenReviews;
+import com.products.product.dto.ReviewProducto;
+import com.products.product.entity.Categoria;
+import com.products.product.entity.Product;
+import com.products.product.entity.Review;
+import com.products.product.repository.ProductRepository;
+import com.products.product.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ReviewRepositoryTest {
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setNombre("Teclado");
+        product.setCategoria(Categoria.ELECTRONICA);
+        product.setCantidad(5);
+        product = productRepository.save(product);
+
+        reviewRepository.save(review(1L, 3, false));
+        reviewRepository.save(review(2L, 5, true));
+        reviewRepository.save(review(3L, 1, true));
+    }
+
+    @Test
+    void findVistaByProductId_ShouldSortAndSlice() {
+        // Act
+        Slice<ReviewProducto> mejor = reviewRepository.findVistaByProductId(
+                product.getId(), PageRequest.of(0, 2, OrdenReviews.MEJOR.getSort()));
+        Slice<ReviewProducto> recientes = reviewRepository.findVistaByProductId(
+                product.getId(), PageRequest.of(1, 2, OrdenReviews.RECIENTES.getSort()));
+
+        // Assert
+        assertEquals(List.of(5, 3), mejor.getContent().stream().map(ReviewProducto::getRating).toList());
+        assertTrue(mejor.hasNext());
+        assertEquals(product.getId(), mejor.getContent().get(0).getProductId());
+        assertEquals(List.of(1L), recientes.getContent().stream().map(ReviewProducto::getUserId).toList());
+        assertFalse(recientes.hasNext());
+    }
+
+    @Test
+    void findVistaByProductId_ShouldPutVerifiedFirst() {
+        // Act
+        Slice<ReviewProducto> result = reviewRepository.findVistaByProductId(
+                product.getId(), PageRequest.of(0, 10, OrdenReviews.VERIFICADAS.getSort()));
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L), result.getContent().stream().map(ReviewProducto::getUserId).toList());
+    }
+
+    private Review review(Long userId, int rating, boolean verificada) {
+        Review review = new Review();
+        review.setUserId(userId);
+        review.setProduct(product);
+        review.setRating(rating);
+        review.setVerifiedPurchase(verificada);
+        return review;
+    }
+
+    @Test
+    void findReviewedProductIds_ShouldReturnOnlyUserReviews() {
+        // Act
+        List<Long> result = reviewRepository.findReviewedProductIds(2L, List.of(product.getId(), 999L));
+
+        // Assert
+        assertEquals(List.of(product.getId()), result);
+        assertTrue(reviewRepository.findReviewedProductIds(42L, List.of(product.getId())).isEmpty());
+    }
+}
\ No newline at end of file
@@ -1,21 +1,32 @@
 package com.products.product.pruebas_Unitarias;
 
+import com.products.product.config.DatabasePlatform;
+import com.products.product.dto.OrdenReviews;
+import com.products.product.dto.ResumenValoraciones;
+import com.products.product.dto.ReviewProducto;
 import com.products.product.entity.Product;
+import com.products.product.entity.ProductRating;
 import com.products.product.entity.Review;
+import com.products.product.repository.ProductRatingRepository;
 import com.products.product.repository.ProductRepository;
 import com.products.product.repository.ReviewRepository;
 import com.products.product.service.DeliveryValidationService;
 import com.products.product.service.ReviewService;
+import com.products.product.util.Paginacion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,6 +44,12 @@ class ReviewServiceTest {
     @Mock
     private DeliveryValidationService deliveryValidationService;
 
+    @Mock
+    private ProductRatingRepository productRatingRepository;
+
+    @Mock
+    private DatabasePlatform databasePlatform;
+
     @InjectMocks
     private ReviewService reviewService;
 
@@ -70,6 +87,7 @@ class ReviewServiceTest {
         assertEquals(1L, result.getId());
         assertTrue(result.isVerifiedPurchase());
         verify(reviewRepository).save(any(Review.class));
+        verify(productRatingRepository).aplicarCambio(1L, 0, 5);
     }
 
     @Test
@@ -151,13 +169,29 @@ class ReviewServiceTest {
     @Test
     void deleteReview_ShouldDeleteReview() {
         // Arrange
-        doNothing().when(reviewRepository).deleteById(1L);
+        when(reviewRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testReview));
+        when(reviewRepository.eliminar(1L)).thenReturn(1);
+
+        // Act
+        reviewService.deleteReview(1L);
+
+        // Assert
+        verify(reviewRepository).eliminar(1L);
+        verify(productRatingRepository).inicializarEstandar(1L);
+        verify(productRatingRepository).aplicarCambio(1L, 5, 0);
+    }
+
+    @Test
+    void deleteReview_ShouldNotTouchAggregateWhenAlreadyDeleted() {
+        // Arrange
+        when(reviewRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testReview));
+        when(reviewRepository.eliminar(1L)).thenReturn(0);
 
         // Act
         reviewService.deleteReview(1L);
 
         // Assert
-        verify(reviewRepository).deleteById(1L);
+        verify(productRatingRepository, never()).aplicarCambio(anyLong(), anyInt(), anyInt());
     }
 
     @Test
@@ -167,7 +201,7 @@ class ReviewServiceTest {
         updates.setRating(4);
         updates.setComment("Updated comment");
 
-        when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
+        when(reviewRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testReview));
         when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
 
         // Act
@@ -178,6 +212,7 @@ class ReviewServiceTest {
         assertEquals(4, result.getRating());
         assertEquals("Updated comment", result.getComment());
         verify(reviewRepository).save(any(Review.class));
+        verify(productRatingRepository).aplicarCambio(1L, 5, 4);
     }
 
     @Test
@@ -217,4 +252,156 @@ class ReviewServiceTest {
         // Assert
         assertFalse(result);
     }
+
+    @Test
+    void createReview_ShouldSeedAggregateWithPostgresUpsert() {
+        // Arrange
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(reviewRepository.existsByUserIdAndProductId(1L, 1L)).thenReturn(false);
+        when(deliveryValidationService.hasUserReceivedProduct(1L, 1L)).thenReturn(true);
+        when(databasePlatform.isPostgreSQL()).thenReturn(true);
+        when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
+
+        // Act
+        reviewService.createReview(testReview);
+
+        // Assert
+        verify(productRatingRepository).inicializarPostgres(1L);
+        verify(productRatingRepository, never()).inicializarEstandar(anyLong());
+    }
+
+    @Test
+    void updateReview_ShouldNotTouchAggregateWhenRatingUnchanged() {
+        // Arrange
+        Review updates = new Review();
+        updates.setRating(5);
+        when(reviewRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testReview));
+        when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
+
+        // Act
+        reviewService.updateReview(1L, updates);
+
+        // Assert
+        verifyNoInteractions(productRatingRepository);
+    }
+
+    @Test
+    void deleteReview_ShouldIgnoreMissingReview() {
+        // Arrange
+        when(reviewRepository.findByIdForUpdate(99L)).thenReturn(Optional.empty());
+
+        // Act
+        reviewService.deleteReview(99L);
+
+        // Assert
+        verify(reviewRepository, never()).eliminar(anyLong());
+        verifyNoInteractions(productRatingRepository);
+    }
+
+    @Test
+    void getRatingSummary_ShouldReadPrecomputedAggregate() {
+        // Arrange
+        when(productRatingRepository.findById(1L)).thenReturn(Optional.of(new ProductRating(1L, 3, 12, 0, 0, 1, 1, 1)));
+
+        // Act
+        ResumenValoraciones result = reviewService.getRatingSummary(1L);
+
+        // Assert
+        assertEquals(3, result.getRatingCount());
+        assertEquals(4.0, result.getPromedio());
+        assertEquals(1L, result.getEstrellas().get(5));
+        assertEquals(0L, result.getEstrellas().get(1));
+        verify(reviewRepository, never()).contarPorRating(anyLong());
+    }
+
+    @Test
+    void getRatingSummary_ShouldFallBackToReviewsWhenNoAggregate() {
+        // Arrange
+        when(productRatingRepository.findById(1L)).thenReturn(Optional.empty());
+        when(reviewRepository.contarPorRating(1L)).thenReturn(List.of(new Object[]{2, 1L}, new Object[]{4, 1L}));
+
+        // Act
+        ResumenValoraciones result = reviewService.getRatingSummary(1L);
+
+        // Assert
+        assertEquals(2, result.getRatingCount());
+        assertEquals(3.0, result.getPromedio());
+        assertEquals(5, result.getEstrellas().size());
+    }
+
+    @Test
+    void getProductReviewsPage_ShouldDefaultToNewestFirst() {
+        // Arrange
+        PageRequest esperado = PageRequest.of(0, Paginacion.TAMANO_DEFECTO, OrdenReviews.RECIENTES.getSort());
+        ReviewProducto vista = new ReviewProducto(1L, 1L, 1L, 5, "Great product!", true);
+        when(reviewRepository.findVistaByProductId(1L, esperado)).thenReturn(new SliceImpl<>(List.of(vista), esperado, false));
+
+        // Act
+        var result = reviewService.getProductReviewsPage(1L, null, null, null);
+
+        // Assert
+        assertEquals(List.of(vista), result.getContent());
+        assertFalse(result.hasNext());
+        verify(reviewRepository, never()).findByProductId(anyLong());
+    }
+
+    @Test
+    void getProductReviewsPage_ShouldApplyRequestedOrderAndCapSize() {
+        // Arrange
+        PageRequest esperado = PageRequest.of(2, Paginacion.TAMANO_MAXIMO, OrdenReviews.PEOR.getSort());
+        when(reviewRepository.findVistaByProductId(1L, esperado)).thenReturn(new SliceImpl<>(List.of(), esperado, false));
+
+        // Act
+        reviewService.getProductReviewsPage(1L, 2, 5000, OrdenReviews.PEOR);
+
+        // Assert
+        verify(reviewRepository).findVistaByProductId(1L, esperado);
+    }
+
+    @Test
+    void canUserReviewProducts_ShouldUseOneQueryPerTable() {
+        // Arrange
+        when(reviewRepository.findReviewedProductIds(eq(1L), anyCollection())).thenReturn(List.of(2L));
+        when(deliveryValidationService.productosRecibidos(1L, Set.of(1L, 3L))).thenReturn(Set.of(3L));
+
+        // Act
+        Map<Long, Boolean> result = reviewService.canUserReviewProducts(1L, List.of(3L, 2L, 1L, 3L));
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L), List.copyOf(result.keySet()));
+        assertTrue(result.get(3L));
+        assertFalse(result.get(2L)); // Ya reseñado
+        assertFalse(result.get(1L)); // No recibido
+        verify(deliveryValidationService, never()).hasUserReceivedProduct(anyLong(), anyLong());
+        verify(reviewRepository, never()).existsByUserIdAndProductId(anyLong(), anyLong());
+    }
+
+    @Test
+    void canUserReviewProducts_ShouldReturnEmptyMapForNoProducts() {
+        // Act
+        Map<Long, Boolean> result = reviewService.canUserReviewProducts(1L, List.of());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(deliveryValidationService);
+    }
+
+
+    @Test
+    void createReview_ShouldSkipSeedWhenAggregateAlreadyExists() {
+        // Arrange
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(reviewRepository.existsByUserIdAndProductId(1L, 1L)).thenReturn(false);
+        when(deliveryValidationService.hasUserReceivedProduct(1L, 1L)).thenReturn(true);
+        when(productRatingRepository.existsById(1L)).thenReturn(true);
+        when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
+
+        // Act
+        reviewService.createReview(testReview);
+
+        // Assert
+        verify(productRatingRepository, never()).inicializarPostgres(anyLong());
+        verify(productRatingRepository, never()).inicializarEstandar(anyLong());
+        verify(productRatingRepository).aplicarCambio(1L, 0, 5);
+    }
 }
\ No newline at end of file
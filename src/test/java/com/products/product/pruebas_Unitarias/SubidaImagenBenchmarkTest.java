@@ -0,0 +1,214 @@
+package com.products.product.pruebas_Unitarias;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.products.product.repository.CloudinaryImageStore;
+import com.products.product.service.CloudinaryService;
+import com.products.product.service.LimitadorSubidas;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara el heap ocupado al subir N imágenes a la vez contra un almacenamiento simulado
+ * local, enviando el fichero por streaming frente a cargarlo entero con getBytes().
+ * Excluida de la ejecución normal: mvn test -Dgroups=benchmark -DexcludedGroups=
+ */
+@Tag("benchmark")
+class SubidaImagenBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(SubidaImagenBenchmarkTest.class);
+
+    private static final int SUBIDAS = 8;
+    private static final int TAMANO = 16 * 1024 * 1024;
+
+    private HttpServer almacenamiento;
+    private Cloudinary cloudinary;
+    private Path imagen;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Almacenamiento simulado: consume el cuerpo sin guardarlo y responde como Cloudinary
+        almacenamiento = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        almacenamiento.setExecutor(Executors.newFixedThreadPool(SUBIDAS));
+        almacenamiento.createContext("/", intercambio -> {
+            try (InputStream cuerpo = intercambio.getRequestBody()) {
+                byte[] buffer = new byte[64 * 1024];
+                while (cuerpo.read(buffer) != -1) {
+                    // descartar
+                }
+            }
+            byte[] respuesta = "{\"url\":\"http://local/imagen.jpg\"}".getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().add("Content-Type", "application/json");
+            intercambio.sendResponseHeaders(200, respuesta.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(respuesta);
+            }
+        });
+        almacenamiento.start();
+
+        cloudinary = new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", "local",
+                "api_key", "clave",
+                "api_secret", "secreto",
+                "upload_prefix", "http://127.0.0.1:" + almacenamiento.getAddress().getPort()));
+
+        imagen = Files.createTempFile("benchmark-", ".img");
+        try (RandomAccessFile fichero = new RandomAccessFile(imagen.toFile(), "rw")) {
+            fichero.setLength(TAMANO);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        almacenamiento.stop(0);
+        Files.deleteIfExists(imagen);
+    }
+
+    @Test
+    void subidasSimultaneas_ShouldKeepHeapFlatWhenStreaming() throws Exception {
+        CloudinaryService streaming = new CloudinaryService(new CloudinaryImageStore(cloudinary), new LimitadorSubidas(SUBIDAS, 10_000),
+                new SimpleMeterRegistry());
+
+        long enMemoria = picoDeHeap(() -> {
+            Object r = cloudinary.uploader().upload(new ImagenEnDisco(imagen).getBytes(), ObjectUtils.emptyMap());
+            return String.valueOf(r);
+        });
+        long conStreaming = picoDeHeap(() -> streaming.uploadImage(new ImagenEnDisco(imagen)));
+
+        logger.info("Subidas simultáneas: {} x {} MB; pico de heap con getBytes() +{} MB, con streaming +{} MB",
+                SUBIDAS, TAMANO / (1024 * 1024), enMemoria / (1024 * 1024), conStreaming / (1024 * 1024));
+
+        // Con streaming el heap no crece con el tamaño de las imágenes en curso
+        assertTrue(conStreaming < (long) SUBIDAS * TAMANO / 4,
+                "El heap creció " + conStreaming / (1024 * 1024) + " MB subiendo por streaming");
+        // getBytes() mantiene cada imagen entera en memoria mientras se sube
+        assertTrue(enMemoria > conStreaming,
+                "getBytes() (+" + enMemoria / (1024 * 1024) + " MB) no superó al streaming (+"
+                        + conStreaming / (1024 * 1024) + " MB)");
+    }
+
+    @FunctionalInterface
+    private interface Subida {
+        String ejecutar() throws Exception;
+    }
+
+    // Lanza las subidas a la vez y devuelve el máximo de heap ocupado por encima del inicial
+    private long picoDeHeap(Subida subida) throws Exception {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long inicial = memoria.getHeapMemoryUsage().getUsed();
+
+        AtomicLong pico = new AtomicLong(inicial);
+        AtomicBoolean midiendo = new AtomicBoolean(true);
+        Thread muestreo = new Thread(() -> {
+            while (midiendo.get()) {
+                pico.accumulateAndGet(memoria.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        muestreo.start();
+
+        ExecutorService clientes = Executors.newFixedThreadPool(SUBIDAS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<String>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < SUBIDAS; i++) {
+                resultados.add(clientes.submit(() -> {
+                    salida.await();
+                    return subida.ejecutar();
+                }));
+            }
+            salida.countDown();
+            for (Future<String> resultado : resultados) {
+                assertNotNull(resultado.get());
+            }
+        } finally {
+            clientes.shutdown();
+            midiendo.set(false);
+            muestreo.join();
+        }
+        return pico.get() - inicial;
+    }
+
+    // Parte multipart ya volcada a disco, como la deja Tomcat con file-size-threshold 0
+    private static class ImagenEnDisco implements MultipartFile {
+        private final Path origen;
+
+        ImagenEnDisco(Path origen) {
+            this.origen = origen;
+        }
+
+        @Override
+        public String getName() {
+            return "image";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "imagen.jpg";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return TAMANO;
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(origen);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(origen);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(origen, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}